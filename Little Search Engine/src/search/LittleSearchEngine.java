@@ -2,6 +2,7 @@ package search;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * This class encapsulates an occurrence of a keyword in a document. It stores the
@@ -49,6 +50,18 @@ class Occurrence {
  */
 public class LittleSearchEngine {
 	
+	/**
+	 * Number of shards the keywords are split into for a parallel merge. Each keyword
+	 * belongs to exactly one shard, so shards can be merged at the same time.
+	 */
+	static final int MERGE_SHARDS = 64;
+	
+	/**
+	 * Number of documents loaded at a time by a parallel makeIndex. Only this many
+	 * per-document keyword tables are held in memory at once.
+	 */
+	static final int BATCH_DOCUMENTS = 4096;
+	
 	/**
 	 * This is a hash table of all keywords. The key is the actual keyword, and the associated value is
 	 * an array list of all occurrences of the keyword in documents. The array list is maintained in descending
@@ -83,14 +96,10 @@ public class LittleSearchEngine {
 	public void makeIndex(String docsFile, String noiseWordsFile) 
 	throws FileNotFoundException {
 		// load noise words to hash table
-		Scanner sc = new Scanner(new File(noiseWordsFile));
-		while (sc.hasNext()) {
-			String word = sc.next();
-			noiseWords.put(word,word);
-		}
+		loadNoiseWords(noiseWordsFile);
 		
 		// index all keywords
-		sc = new Scanner(new File(docsFile));
+		Scanner sc = new Scanner(new File(docsFile));
 		while (sc.hasNext()) {
 			String docFile = sc.next();
 			HashMap<String,Occurrence> kws = loadKeyWords(docFile);
@@ -98,6 +107,174 @@ public class LittleSearchEngine {
 		}
 		
 	}
+	
+	/**
+	 * Does the same as makeIndex(docsFile, noiseWordsFile), with the documents loaded
+	 * and merged in parallel on the given executor. The resulting keywordsIndex is
+	 * identical to the one the sequential method builds: each keyword's Occurrence list
+	 * holds the documents in the order they are listed in the docs file.
+	 * <p>
+	 * Documents are taken in batches of BATCH_DOCUMENTS. Within a batch, loadKeyWords
+	 * runs for every document at the same time, and each document's keywords are split
+	 * by shard. Then each of the MERGE_SHARDS shards is merged by its own task, which
+	 * goes through the batch in document order and appends to the Occurrence lists of
+	 * its own keywords only. Since no two tasks ever touch the same keyword, no lock is
+	 * needed. New keywords are put into keywordsIndex by the calling thread once all
+	 * batches are merged.
+	 * <p>
+	 * If a document is missing, the documents before it are merged, as in the
+	 * sequential method, and the exception is thrown.
+	 * 
+	 * @param docsFile Name of file that has a list of all the document file names, one name per line
+	 * @param noiseWordsFile Name of file that has a list of noise words, one noise word per line
+	 * @param executor Executor to run the loading and merging tasks on
+	 * @throws FileNotFoundException If there is a problem locating any of the input files on disk
+	 * @throws InterruptedException If the calling thread is interrupted while waiting for the tasks
+	 */
+	public void makeIndex(String docsFile, String noiseWordsFile, ExecutorService executor) 
+	throws FileNotFoundException, InterruptedException {
+		loadNoiseWords(noiseWordsFile);
+		
+		ArrayList<String> docs = new ArrayList<String>();
+		Scanner sc = new Scanner(new File(docsFile));
+		while (sc.hasNext()) {
+			docs.add(sc.next());
+		}
+		
+		// Keywords not yet in keywordsIndex, by shard. Only the shard's own task changes them.
+		ArrayList<HashMap<String,ArrayList<Occurrence>>> added = new ArrayList<HashMap<String,ArrayList<Occurrence>>>();
+		for (int s = 0; s < MERGE_SHARDS; s++) {
+			added.add(new HashMap<String,ArrayList<Occurrence>>());
+		}
+		
+		try {
+			for (int start = 0; start < docs.size(); start += BATCH_DOCUMENTS) {
+				List<String> batch = docs.subList(start, Math.min(docs.size(), start + BATCH_DOCUMENTS));
+				
+				// 1. Load every document of the batch, split by shard.
+				ArrayList<Future<ArrayList<ArrayList<Map.Entry<String,Occurrence>>>>> loads =
+						new ArrayList<Future<ArrayList<ArrayList<Map.Entry<String,Occurrence>>>>>();
+				for (String docFile : batch) {
+					loads.add(executor.submit(() -> splitByShard(loadKeyWords(docFile))));
+				}
+				
+				// Documents up to the first missing one are merged.
+				ArrayList<ArrayList<ArrayList<Map.Entry<String,Occurrence>>>> loaded =
+						new ArrayList<ArrayList<ArrayList<Map.Entry<String,Occurrence>>>>();
+				ExecutionException failure = null;
+				for (Future<ArrayList<ArrayList<Map.Entry<String,Occurrence>>>> f : loads) {
+					try {
+						if (failure == null) {
+							loaded.add(f.get());
+						} else {
+							f.cancel(false);
+						}
+					} catch (ExecutionException e) {
+						failure = e;
+					}
+				}
+				
+				// 2. Merge each shard, going through the documents in order.
+				ArrayList<Future<?>> merges = new ArrayList<Future<?>>();
+				for (int s = 0; s < MERGE_SHARDS; s++) {
+					int shard = s;
+					merges.add(executor.submit(() -> mergeShard(loaded, shard, added.get(shard))));
+				}
+				for (Future<?> f : merges) {
+					f.get();
+				}
+				
+				if (failure != null) {
+					throw failure;
+				}
+			}
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof FileNotFoundException) {
+				throw (FileNotFoundException)cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException)cause;
+			} else if (cause instanceof Error) {
+				throw (Error)cause;
+			}
+			throw new IllegalStateException(cause);
+		} finally {
+			for (HashMap<String,ArrayList<Occurrence>> shard : added) {
+				keywordsIndex.putAll(shard);
+			}
+		}
+	}
+	
+	/**
+	 * Loads the noise words file into the noiseWords hash table.
+	 * 
+	 * @param noiseWordsFile Name of file that has a list of noise words, one noise word per line
+	 * @throws FileNotFoundException If the file is not found on disk
+	 */
+	private void loadNoiseWords(String noiseWordsFile) 
+	throws FileNotFoundException {
+		Scanner sc = new Scanner(new File(noiseWordsFile));
+		while (sc.hasNext()) {
+			String word = sc.next();
+			noiseWords.put(word,word);
+		}
+	}
+	
+	/**
+	 * Returns the shard a keyword belongs to in a parallel merge.
+	 * 
+	 * @param key Keyword
+	 * @return Shard, 0 to MERGE_SHARDS-1
+	 */
+	static int shardOf(String key) {
+		int h = key.hashCode();
+		return (h ^ (h >>> 16)) & (MERGE_SHARDS - 1);
+	}
+	
+	/**
+	 * Splits the keywords of one document by shard.
+	 * 
+	 * @param kws Keywords hash table for a document
+	 * @return Keywords of shard s, with their occurrences, at index s
+	 */
+	private static ArrayList<ArrayList<Map.Entry<String,Occurrence>>> splitByShard(HashMap<String,Occurrence> kws) {
+		ArrayList<ArrayList<Map.Entry<String,Occurrence>>> parts = new ArrayList<ArrayList<Map.Entry<String,Occurrence>>>(MERGE_SHARDS);
+		for (int s = 0; s < MERGE_SHARDS; s++) {
+			parts.add(new ArrayList<Map.Entry<String,Occurrence>>());
+		}
+		for (Map.Entry<String,Occurrence> e : kws.entrySet()) {
+			parts.get(shardOf(e.getKey())).add(e);
+		}
+		return parts;
+	}
+	
+	/**
+	 * Merges the keywords of one shard from a batch of documents, in document order,
+	 * the same way mergeKeyWords does. Lists of keywords already in keywordsIndex are
+	 * appended to in place; keywordsIndex itself is only read, so all shards of a batch
+	 * can be merged at the same time.
+	 * 
+	 * @param docs Keywords of each document, split by shard
+	 * @param shard Shard to merge
+	 * @param added Lists of the shard's keywords not in keywordsIndex yet
+	 */
+	private void mergeShard(ArrayList<ArrayList<ArrayList<Map.Entry<String,Occurrence>>>> docs, int shard,
+			HashMap<String,ArrayList<Occurrence>> added) {
+		for (ArrayList<ArrayList<Map.Entry<String,Occurrence>>> doc : docs) {
+			for (Map.Entry<String,Occurrence> e : doc.get(shard)) {
+				ArrayList<Occurrence> list = added.get(e.getKey());
+				if (list == null) {
+					list = keywordsIndex.get(e.getKey());
+				}
+				if (list == null) {
+					list = new ArrayList<Occurrence>();
+					added.put(e.getKey(), list);
+				}
+				list.add(e.getValue());
+				insertLastOccurrence(list);
+			}
+		}
+	}
 
 	/**
 	 * Scans a document, and loads all keywords found into a hash table of keyword occurrences
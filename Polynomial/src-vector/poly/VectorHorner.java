@@ -0,0 +1,73 @@
+package poly;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * This class evaluates a dense polynomial at many points at once with the Java
+ * Vector API. Each lane of a vector holds a different value of x, and Horner's scheme
+ * runs on whole vectors with one multiply and one add per coefficient, so a vector of
+ * 4 or 8 doubles (depending on the CPU) is evaluated for the cost of one point.
+ * <p>
+ * The Vector API is an incubator module in this JDK, so this class lives in its own
+ * source root and is compiled in a second, optional step after the rest of the
+ * package, which builds with plain javac:
+ * <pre>
+ *     javac -d bin src/poly/*.java
+ *     javac --add-modules jdk.incubator.vector -cp bin -d bin src-vector/poly/VectorHorner.java
+ * </pre>
+ * Runs that want it also need {@code --add-modules jdk.incubator.vector}. The rest of
+ * the package only reaches it through {@link Horner#denseBatch}, which falls back to
+ * scalar code when the class or the module is not there.
+ * <p>
+ * Like the scalar evaluator ({@link Horner#dense}) this works in double precision,
+ * with a separate multiply and add rather than a fused multiply-add, and rounds to
+ * float once at the end. Each lane does exactly the operations the scalar code does,
+ * so the values are the same whether or not a batch goes through here.
+ *
+ * @author runb-cs112
+ *
+ */
+class VectorHorner {
+
+	/**
+	 * Widest vector shape the CPU supports well.
+	 */
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+	/**
+	 * Evaluates a dense polynomial at each of the given points.
+	 *
+	 * @param coeffs Coefficient of degree i at index i
+	 * @param n Number of coefficients
+	 * @param xs Values at which the polynomial is to be evaluated
+	 * @param out Array to hold the value at xs[i] in out[i], at least as long as xs
+	 * @param from First index of xs to evaluate
+	 * @param to One past the last index of xs to evaluate
+	 */
+	static void evaluate(float[] coeffs, int n, float[] xs, float[] out, int from, int to) {
+		int lanes = SPECIES.length();
+		double[] x = new double[lanes], y = new double[lanes];
+		int i = from;
+		int bound = from + SPECIES.loopBound(to - from);
+		for (; i < bound; i += lanes) {
+			for (int j = 0; j < lanes; j++) {
+				x[j] = xs[i+j];
+			}
+			DoubleVector vx = DoubleVector.fromArray(SPECIES, x, 0);
+			DoubleVector acc = DoubleVector.zero(SPECIES);
+			for (int c = n-1; c >= 0; c--) {
+				acc = acc.mul(vx).add(coeffs[c]);
+			}
+			acc.intoArray(y, 0);
+			for (int j = 0; j < lanes; j++) {
+				out[i+j] = (float)y[j];
+			}
+		}
+
+		// Points left over after the last full vector.
+		for (; i < to; i++) {
+			out[i] = (float)Horner.dense(coeffs, n, xs[i]);
+		}
+	}
+}
@@ -0,0 +1,608 @@
+package poly;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * This class implements a polynomial stored in primitive arrays instead of a
+ * linked list of nodes. One of two layouts is used:
+ * <ul>
+ *     <li><b>sparse</b> - parallel arrays of degrees and coefficients, in ascending
+ *     order of degree, with one entry per non-zero term</li>
+ *     <li><b>dense</b> - a single coefficient array indexed by degree, from degree 0
+ *     up to the highest degree</li>
+ * </ul>
+ * The layout is picked automatically from the ratio of the highest degree to the
+ * number of terms, so that whichever layout takes less memory is used. Instances
+ * are never changed once they are built.
+ *
+ * @author runb-cs112
+ *
+ */
+public class ArrayPolynomial {
+
+	/**
+	 * A dense array is used when it has at most this many slots per non-zero term.
+	 * A sparse term costs two array entries (degree and coefficient), a dense slot
+	 * costs one.
+	 */
+	static final int DENSE_FILL = 2;
+
+	/**
+	 * Degrees of the terms in ascending order, or null if this polynomial is dense.
+	 */
+	final int[] degrees;
+
+	/**
+	 * Coefficients of the terms (sparse), or coefficients indexed by degree (dense).
+	 */
+	final float[] coeffs;
+
+	/**
+	 * Number of entries in use: number of terms (sparse), or highest degree + 1 (dense).
+	 */
+	final int size;
+
+	/**
+	 * Initializes this polynomial to empty, i.e. there are no terms.
+	 */
+	public ArrayPolynomial() {
+		this(new int[0], new float[0], 0);
+	}
+
+	/**
+	 * Wraps the given arrays without copying or checking them.
+	 *
+	 * @param degrees Ascending degrees, or null for the dense layout
+	 * @param coeffs Coefficients
+	 * @param size Number of entries in use
+	 */
+	ArrayPolynomial(int[] degrees, float[] coeffs, int size) {
+		this.degrees = degrees;
+		this.coeffs = coeffs;
+		this.size = size;
+	}
+
+	/**
+	 * Builds an array polynomial holding the same terms as the given linked list polynomial.
+	 *
+	 * @param p Polynomial to be converted
+	 * @return Array polynomial with the best layout for the terms of p
+	 */
+	public static ArrayPolynomial from(Polynomial p) {
+		int n = p.size();
+		int[] degrees = new int[n];
+		float[] coeffs = new float[n];
+		p.copyTerms(degrees, coeffs);
+
+		boolean ascending = true;
+		for (int i = 1; i < n; i++) {
+			if (degrees[i] <= degrees[i-1]) {
+				ascending = false;
+			}
+		}
+
+		if (!ascending) {
+			sortByDegree(degrees, coeffs, n);
+		}
+		return sparse(degrees, coeffs, n);
+	}
+
+	/**
+	 * Builds an array polynomial from terms given in ascending order of degree. Terms
+	 * with equal degree are combined and zero terms are dropped. The arrays are reused
+	 * for the result if the sparse layout is chosen.
+	 *
+	 * @param degrees Degrees in ascending order
+	 * @param coeffs Coefficients
+	 * @param n Number of terms
+	 * @return Array polynomial with the best layout for the terms
+	 */
+	static ArrayPolynomial sparse(int[] degrees, float[] coeffs, int n) {
+		int k = 0;
+		for (int i = 0; i < n; i++) {
+			if (k > 0 && degrees[k-1] == degrees[i]) {
+				coeffs[k-1] += coeffs[i];
+				if (coeffs[k-1] == 0) {
+					k--;
+				}
+			} else if (coeffs[i] != 0) {
+				degrees[k] = degrees[i];
+				coeffs[k] = coeffs[i];
+				k++;
+			}
+		}
+		return new ArrayPolynomial(degrees, coeffs, k).withBestLayout();
+	}
+
+	/**
+	 * Builds an array polynomial from coefficients indexed by degree.
+	 *
+	 * @param coeffs Coefficient of degree i at index i
+	 * @param n Number of coefficients to use
+	 * @return Array polynomial with the best layout for the coefficients
+	 */
+	static ArrayPolynomial dense(float[] coeffs, int n) {
+		while (n > 0 && coeffs[n-1] == 0) {
+			n--;
+		}
+		return new ArrayPolynomial(null, coeffs, n).withBestLayout();
+	}
+
+	/**
+	 * Builds an array polynomial from double precision coefficients indexed by degree.
+	 *
+	 * @param coeffs Coefficient of degree i at index i
+	 * @param n Number of coefficients to use
+	 * @return Array polynomial with the best layout for the coefficients
+	 */
+	static ArrayPolynomial dense(double[] coeffs, int n) {
+		float[] c = new float[n];
+		for (int i = 0; i < n; i++) {
+			c[i] = (float)coeffs[i];
+		}
+		return dense(c, n);
+	}
+
+	/**
+	 * Returns this polynomial in whichever layout takes less memory.
+	 *
+	 * @return This polynomial, or a copy of it in the other layout
+	 */
+	ArrayPolynomial withBestLayout() {
+		int terms = terms();
+		boolean denseBetter = terms > 0 && degree() + 1 <= DENSE_FILL * (long)terms;
+		if (denseBetter == isDense()) {
+			return this;
+		}
+		return denseBetter ? toDense() : toSparse();
+	}
+
+	/**
+	 * Returns this polynomial in the sparse layout.
+	 *
+	 * @return This polynomial if already sparse, otherwise a sparse copy
+	 */
+	ArrayPolynomial toSparse() {
+		if (!isDense()) {
+			return this;
+		}
+		int n = terms();
+		int[] d = new int[n];
+		float[] c = new float[n];
+		int k = 0;
+		for (int i = 0; i < size; i++) {
+			if (coeffs[i] != 0) {
+				d[k] = i;
+				c[k] = coeffs[i];
+				k++;
+			}
+		}
+		return new ArrayPolynomial(d, c, n);
+	}
+
+	/**
+	 * Returns this polynomial in the dense layout.
+	 *
+	 * @return This polynomial if already dense, otherwise a dense copy
+	 */
+	ArrayPolynomial toDense() {
+		if (isDense()) {
+			return this;
+		}
+		float[] c = new float[degree() + 1];
+		for (int i = 0; i < size; i++) {
+			c[degrees[i]] = coeffs[i];
+		}
+		return new ArrayPolynomial(null, c, c.length);
+	}
+
+	/**
+	 * Builds a linked list polynomial with the same terms as this polynomial. The
+	 * terms are linked in ascending order of degree, like the ones read by
+	 * {@link Polynomial#Polynomial(java.io.BufferedReader)}.
+	 *
+	 * @return Linked list polynomial
+	 */
+	public Polynomial toPolynomial() {
+		Polynomial ans = new Polynomial();
+		for (int i = size-1; i >= 0; i--) {
+			if (isDense()) {
+				if (coeffs[i] != 0) {
+					ans.prepend(coeffs[i], i);
+				}
+			} else {
+				ans.prepend(coeffs[i], degrees[i]);
+			}
+		}
+		return ans;
+	}
+
+	/**
+	 * Tells whether this polynomial uses the dense layout.
+	 *
+	 * @return True if dense, false if sparse
+	 */
+	public boolean isDense() {
+		return degrees == null;
+	}
+
+	/**
+	 * Returns the number of non-zero terms in this polynomial.
+	 *
+	 * @return Number of terms
+	 */
+	public int terms() {
+		if (!isDense()) {
+			return size;
+		}
+		int n = 0;
+		for (int i = 0; i < size; i++) {
+			if (coeffs[i] != 0) {
+				n++;
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * Returns the highest degree in this polynomial.
+	 *
+	 * @return Highest degree, or -1 if there are no terms
+	 */
+	public int degree() {
+		if (size == 0) {
+			return -1;
+		}
+		return isDense() ? size-1 : degrees[size-1];
+	}
+
+	/**
+	 * Returns the polynomial obtained by adding the given polynomial p
+	 * to this polynomial - DOES NOT change this polynomial
+	 *
+	 * @param p Polynomial to be added
+	 * @return A new polynomial which is the sum of this polynomial and p.
+	 */
+	public ArrayPolynomial add(ArrayPolynomial p) {
+		return addShifted(p, 0);
+	}
+
+	/**
+	 * Returns this polynomial plus p*x^shift - DOES NOT change this polynomial
+	 *
+	 * @param p Polynomial to be added
+	 * @param shift Amount by which degrees of p are raised, at least 0
+	 * @return A new polynomial which is the sum of this polynomial and p*x^shift.
+	 */
+	ArrayPolynomial addShifted(ArrayPolynomial p, int shift) {
+		if (isDense() && p.isDense()) {
+			float[] c = new float[Math.max(size, p.size == 0 ? 0 : p.size + shift)];
+			System.arraycopy(coeffs, 0, c, 0, size);
+			for (int i = 0; i < p.size; i++) {
+				c[i+shift] += p.coeffs[i];
+			}
+			return dense(c, c.length);
+		}
+		return merge(toSparse(), p.toSparse(), shift).withBestLayout();
+	}
+
+	/**
+	 * Merges two sparse polynomials in a single pass over both, combining terms of
+	 * equal degree and dropping the ones that cancel out.
+	 *
+	 * @param a First sparse polynomial
+	 * @param b Second sparse polynomial
+	 * @param shift Amount by which degrees of b are raised
+	 * @return Sparse sum of a and b*x^shift
+	 */
+	static ArrayPolynomial merge(ArrayPolynomial a, ArrayPolynomial b, int shift) {
+		int[] d = new int[a.size + b.size];
+		float[] c = new float[a.size + b.size];
+		int i = 0, j = 0, k = 0;
+
+		while (i < a.size || j < b.size) {
+			if (j == b.size || (i < a.size && a.degrees[i] < b.degrees[j] + shift)) {
+				d[k] = a.degrees[i];
+				c[k] = a.coeffs[i++];
+			} else if (i == a.size || b.degrees[j] + shift < a.degrees[i]) {
+				d[k] = b.degrees[j] + shift;
+				c[k] = b.coeffs[j++];
+			} else {
+				d[k] = a.degrees[i];
+				c[k] = a.coeffs[i++] + b.coeffs[j++];
+			}
+			if (c[k] != 0) {
+				k++;
+			}
+		}
+		return new ArrayPolynomial(d, c, k);
+	}
+
+	/**
+	 * Returns the polynomial obtained by multiplying the given polynomial p
+	 * with this polynomial - DOES NOT change this polynomial
+	 *
+	 * @param p Polynomial with which this polynomial is to be multiplied
+	 * @return A new polynomial which is the product of this polynomial and p.
+	 */
+	public ArrayPolynomial multiply(ArrayPolynomial p) {
+		if (size == 0 || p.size == 0) {
+			return new ArrayPolynomial();
+		}
+		if (isDense() && p.isDense()) {
+			double[] c = DenseMultiplier.multiply(toDoubles(), size, p.toDoubles(), p.size);
+			return dense(c, c.length);
+		}
+
+		return SparseMultiplier.multiply(toSparse(), p.toSparse()).withBestLayout();
+	}
+
+	/**
+	 * Returns the polynomial obtained by multiplying the given polynomial p
+	 * with this polynomial, splitting the work over the threads of the given pool
+	 * - DOES NOT change this polynomial
+	 *
+	 * @param p Polynomial with which this polynomial is to be multiplied
+	 * @param pool Pool to run the multiplication in
+	 * @return A new polynomial which is the product of this polynomial and p.
+	 */
+	public ArrayPolynomial multiply(ArrayPolynomial p, ForkJoinPool pool) {
+		return new ParallelMultiplier(pool).multiply(this, p);
+	}
+
+	/**
+	 * Returns the quotient of this polynomial divided by the given polynomial p
+	 * - DOES NOT change this polynomial
+	 *
+	 * @param p Polynomial by which this polynomial is to be divided
+	 * @return A new polynomial q such that this = q*p + r with deg r &lt; deg p
+	 * @throws ArithmeticException If p is zero
+	 */
+	public ArrayPolynomial divide(ArrayPolynomial p) {
+		double[] q = DenseDivision.divide(toDoubles(), p.toDoubles())[0];
+		return dense(q, q.length);
+	}
+
+	/**
+	 * Returns the remainder of this polynomial divided by the given polynomial p
+	 * - DOES NOT change this polynomial
+	 *
+	 * @param p Polynomial by which this polynomial is to be divided
+	 * @return A new polynomial r such that this = q*p + r with deg r &lt; deg p
+	 * @throws ArithmeticException If p is zero
+	 */
+	public ArrayPolynomial remainder(ArrayPolynomial p) {
+		if (p.size == 0) {
+			throw new ArithmeticException("Division by zero polynomial");
+		}
+		if (degree() < p.degree()) {
+			return this;
+		}
+		double[] r = DenseDivision.remainder(toDoubles(), p.toDoubles());
+		return dense(r, r.length);
+	}
+
+	/**
+	 * Returns the greatest common divisor of this polynomial and the given polynomial p,
+	 * scaled to have leading coefficient 1 - DOES NOT change this polynomial
+	 *
+	 * @param p Other polynomial
+	 * @return A new polynomial which is the monic gcd, or zero if both are zero
+	 */
+	public ArrayPolynomial gcd(ArrayPolynomial p) {
+		double[] g = DenseDivision.gcd(toDoubles(), p.toDoubles());
+		return dense(g, g.length);
+	}
+
+	/**
+	 * Returns the polynomial obtained by substituting the given polynomial q for x
+	 * in this polynomial, i.e. this(q(x)) - DOES NOT change this polynomial
+	 *
+	 * @param q Polynomial to be substituted for x
+	 * @return A new polynomial which is the composition of this polynomial and q.
+	 */
+	public ArrayPolynomial compose(ArrayPolynomial q) {
+		return Composition.compose(this, q);
+	}
+
+	/**
+	 * Returns this polynomial raised to the given power, by repeated squaring
+	 * - DOES NOT change this polynomial
+	 *
+	 * @param k Exponent, 0 or more
+	 * @return A new polynomial which is this polynomial to the power k.
+	 * @throws IllegalArgumentException If k is negative
+	 */
+	public ArrayPolynomial pow(int k) {
+		return Composition.pow(this, k, -1);
+	}
+
+	/**
+	 * Returns this polynomial raised to the given power with all terms above the given
+	 * degree left out, which are also left out of every intermediate product
+	 * - DOES NOT change this polynomial
+	 *
+	 * @param k Exponent, 0 or more
+	 * @param maxDegree Highest degree kept
+	 * @return A new polynomial which is this polynomial to the power k, truncated.
+	 * @throws IllegalArgumentException If k or maxDegree is negative
+	 */
+	public ArrayPolynomial pow(int k, int maxDegree) {
+		if (maxDegree < 0) {
+			throw new IllegalArgumentException("Negative maximum degree " + maxDegree);
+		}
+		return Composition.pow(this, k, maxDegree);
+	}
+
+	/**
+	 * Returns terms lo..hi-1 of this polynomial (sparse), or coefficients lo..hi-1
+	 * (dense), with all degrees lowered by the degree of the first one.
+	 *
+	 * @param lo First term or coefficient
+	 * @param hi One past the last term or coefficient
+	 * @return Slice of this polynomial
+	 */
+	ArrayPolynomial slice(int lo, int hi) {
+		if (isDense()) {
+			return dense(java.util.Arrays.copyOfRange(coeffs, lo, hi), hi - lo);
+		}
+		int[] d = new int[hi - lo];
+		for (int i = lo; i < hi; i++) {
+			d[i-lo] = degrees[i] - degrees[lo];
+		}
+		return new ArrayPolynomial(d, java.util.Arrays.copyOfRange(coeffs, lo, hi), hi - lo).withBestLayout();
+	}
+
+	/**
+	 * Returns this polynomial multiplied by x^k.
+	 *
+	 * @param k Amount by which all degrees are raised, at least 0
+	 * @return This polynomial if k is 0, otherwise a shifted copy
+	 */
+	ArrayPolynomial shift(int k) {
+		if (k == 0 || size == 0) {
+			return this;
+		}
+		if (isDense()) {
+			float[] c = new float[size + k];
+			System.arraycopy(coeffs, 0, c, k, size);
+			return new ArrayPolynomial(null, c, c.length).withBestLayout();
+		}
+		int[] d = new int[size];
+		for (int i = 0; i < size; i++) {
+			d[i] = degrees[i] + k;
+		}
+		return new ArrayPolynomial(d, coeffs, size).withBestLayout();
+	}
+
+	/**
+	 * Returns the degree of the term or coefficient at the given index.
+	 *
+	 * @param i Index of a term (sparse) or coefficient (dense)
+	 * @return Degree at that index
+	 */
+	int degreeAt(int i) {
+		return isDense() ? i : degrees[i];
+	}
+
+	/**
+	 * Returns the dense coefficients of this polynomial in double precision.
+	 *
+	 * @return Coefficient of degree i at index i
+	 */
+	double[] toDoubles() {
+		ArrayPolynomial d = toDense();
+		double[] c = new double[d.size];
+		for (int i = 0; i < d.size; i++) {
+			c[i] = d.coeffs[i];
+		}
+		return c;
+	}
+
+	/**
+	 * Evaluates this polynomial at the given value of x
+	 *
+	 * @param x Value at which this polynomial is to be evaluated
+	 * @return Value of this polynomial at x
+	 */
+	public float evaluate(float x) {
+		return (float)(isDense() ? Horner.dense(coeffs, size, x) : Horner.sparse(degrees, coeffs, size, x));
+	}
+
+	/**
+	 * Evaluates this polynomial at each of the given values of x
+	 *
+	 * @param xs Values at which this polynomial is to be evaluated
+	 * @param out Array to hold the value of this polynomial at xs[i] in out[i]
+	 * @throws IllegalArgumentException If out is shorter than xs
+	 */
+	public void evaluate(float[] xs, float[] out) {
+		if (out.length < xs.length) {
+			throw new IllegalArgumentException("Output array too short: " + out.length + " < " + xs.length);
+		}
+		evaluate(xs, out, 0, xs.length);
+	}
+
+	/**
+	 * Evaluates this polynomial at the values of x in one range of an array, in place,
+	 * so that a batch can be split without copying.
+	 *
+	 * @param xs Values at which this polynomial is to be evaluated
+	 * @param out Array to hold the value of this polynomial at xs[i] in out[i]
+	 * @param from First index of xs to evaluate
+	 * @param to One past the last index of xs to evaluate
+	 */
+	void evaluate(float[] xs, float[] out, int from, int to) {
+		if (isDense()) {
+			Horner.denseBatch(coeffs, size, xs, out, from, to);
+		} else {
+			for (int i = from; i < to; i++) {
+				out[i] = (float)Horner.sparse(degrees, coeffs, size, xs[i]);
+			}
+		}
+	}
+
+	/**
+	 * Compiles this polynomial into an evaluator with its terms baked in as constants,
+	 * for polynomials that are evaluated very many times. Later changes to this
+	 * polynomial do not affect the evaluator.
+	 *
+	 * @return Evaluator for this polynomial
+	 */
+	public CompiledPolynomial compile() {
+		return CompiledPolynomial.compile(this);
+	}
+
+	/**
+	 * Writes this polynomial as text, highest degree first, in the same format as
+	 * {@link #toString()}, streaming the terms to the destination.
+	 *
+	 * @param out Destination, for instance a Writer or a StringBuilder
+	 * @throws IOException If the destination cannot be written
+	 */
+	public void writeTo(Appendable out) throws IOException {
+		TermWriter writer = new TermWriter(out);
+		for (int i = size-1; i >= 0; i--) {
+			if (coeffs[i] != 0) {
+				writer.term(coeffs[i], isDense() ? i : degrees[i]);
+			}
+		}
+		writer.finish();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		try {
+			writeTo(sb);
+		} catch (IOException e) {
+			// A StringBuilder never throws.
+			throw new UncheckedIOException(e);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Sorts parallel degree and coefficient arrays by ascending degree.
+	 *
+	 * @param degrees Degrees
+	 * @param coeffs Coefficients, moved along with their degrees
+	 * @param n Number of entries to sort
+	 */
+	static void sortByDegree(int[] degrees, float[] coeffs, int n) {
+		// Pack each term into a long with the degree in the high half so a plain sort orders by degree.
+		long[] packed = new long[n];
+		for (int i = 0; i < n; i++) {
+			packed[i] = ((long)degrees[i] << 32) | (Float.floatToRawIntBits(coeffs[i]) & 0xffffffffL);
+		}
+		java.util.Arrays.sort(packed);
+		for (int i = 0; i < n; i++) {
+			degrees[i] = (int)(packed[i] >> 32);
+			coeffs[i] = Float.intBitsToFloat((int)packed[i]);
+		}
+	}
+}
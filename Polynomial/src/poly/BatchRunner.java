@@ -0,0 +1,405 @@
+package poly;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class runs the operations of {@link Polytest} from a job file instead of the
+ * menu, started with
+ * <pre>
+ *     java poly.Polytest -batch jobs.txt [-out results.txt] [-threads n]
+ * </pre>
+ * Each line of the job file is one job; blank lines and lines starting with # are
+ * skipped. Polynomial file names are resolved against the directory of the job file.
+ * <pre>
+ *     add      p1.txt p2.txt
+ *     multiply p1.txt p2.txt
+ *     evaluate p1.txt 0.5 1 -2.25
+ * </pre>
+ * Jobs are independent and run in parallel on a pool of threads (one per core by
+ * default). Polynomial files are read with {@link PolynomialReader} and kept for the
+ * jobs that use them: a file is dropped once no job left to run needs it, and the
+ * least recently used files are dropped whenever the kept files hold more than
+ * {@link #CACHE_TERMS} terms, to be read again if needed. Results are written to the
+ * output file (or standard output) as each job finishes, one line per job tagged with
+ * its line number in the job file, e.g. {@code #3 add p1.txt p2.txt: 4.0x^5 + ...}.
+ * Polynomials are streamed out with {@link ArrayPolynomial#writeTo}, so a large
+ * product is never built up as one string. A job that fails writes an error line and
+ * the rest carry on.
+ * <p>
+ * At the end, the number of jobs, throughput and latency percentiles of each
+ * operation are printed to standard output.
+ *
+ * @author runb-cs112
+ *
+ */
+public class BatchRunner {
+
+	/**
+	 * Most terms kept in memory for polynomials read from files.
+	 */
+	static final long CACHE_TERMS = 1L << 24;
+
+	/**
+	 * Usage message.
+	 */
+	private static final String USAGE = "Usage: java poly.Polytest -batch jobs.txt [-out results.txt] [-threads n]";
+
+	/**
+	 * One line of the job file.
+	 */
+	static class Job {
+		int line;
+		String op;
+		Path[] files;
+		float[] points;
+		String text;
+	}
+
+	/**
+	 * Polynomials kept in memory, by file, least recently used first. Guarded by
+	 * itself, together with uses and cachedTerms; files are read outside the lock.
+	 */
+	private final Map<Path, CompletableFuture<ArrayPolynomial>> polynomials =
+			new LinkedHashMap<Path, CompletableFuture<ArrayPolynomial>>(16, 0.75f, true);
+
+	/**
+	 * Number of uses of each file by jobs that have not finished yet.
+	 */
+	private final Map<Path, Integer> uses = new HashMap<Path, Integer>();
+
+	/**
+	 * Number of terms in the polynomials kept in memory.
+	 */
+	private long cachedTerms;
+
+	/**
+	 * Latencies in nanoseconds of the jobs finished so far, by operation.
+	 */
+	private final Map<String, List<Long>> latencies = new TreeMap<String, List<Long>>();
+
+	/**
+	 * Number of jobs that failed.
+	 */
+	private final AtomicInteger failures = new AtomicInteger();
+
+	/**
+	 * Destination of the results.
+	 */
+	private final Writer out;
+
+	/**
+	 * Initializes a runner that writes its results to the given destination.
+	 *
+	 * @param out Destination of the results
+	 */
+	BatchRunner(Writer out) {
+		this.out = out;
+	}
+
+	/**
+	 * Runs a batch from the command line arguments after -batch.
+	 *
+	 * @param args Arguments: job file, then -out file and -threads n in any order
+	 * @throws IOException If the job file cannot be read or the output cannot be written
+	 */
+	static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			throw new IllegalArgumentException(USAGE);
+		}
+		Path jobs = Paths.get(args[0]);
+		String output = null;
+		int threads = Runtime.getRuntime().availableProcessors();
+		for (int i = 1; i < args.length; i += 2) {
+			if (i+1 == args.length) {
+				throw new IllegalArgumentException("Missing value for " + args[i] + "\n" + USAGE);
+			}
+			if (args[i].equals("-out")) {
+				output = args[i+1];
+			} else if (args[i].equals("-threads")) {
+				threads = Integer.parseInt(args[i+1]);
+			} else {
+				throw new IllegalArgumentException("Unknown option " + args[i] + "\n" + USAGE);
+			}
+		}
+
+		Writer w = output == null ? new java.io.OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+				: Files.newBufferedWriter(Paths.get(output), StandardCharsets.UTF_8);
+		try {
+			ExecutorService pool = Executors.newFixedThreadPool(threads);
+			try {
+				BatchRunner runner = new BatchRunner(w);
+				long start = System.nanoTime();
+				runner.run(parse(jobs), pool);
+				w.flush();
+				runner.printStatistics(System.nanoTime() - start);
+			} finally {
+				pool.shutdown();
+			}
+		} finally {
+			if (output != null) {
+				w.close();
+			} else {
+				w.flush();
+			}
+		}
+	}
+
+	/**
+	 * Reads a job file.
+	 *
+	 * @param file Job file
+	 * @return Jobs in file order
+	 * @throws IOException If the file cannot be read or a line is malformed
+	 */
+	static List<Job> parse(Path file) throws IOException {
+		Path dir = file.toAbsolutePath().getParent();
+		List<Job> jobs = new ArrayList<Job>();
+		try (BufferedReader br = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String line;
+			int number = 0;
+			while ((line = br.readLine()) != null) {
+				number++;
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				String[] words = line.split("\\s+");
+				Job job = new Job();
+				job.line = number;
+				job.op = words[0];
+				job.text = line;
+				try {
+					switch (job.op) {
+					case "add":
+					case "multiply":
+						if (words.length != 3) {
+							throw new IOException("expected two polynomial files");
+						}
+						job.files = new Path[] { dir.resolve(words[1]), dir.resolve(words[2]) };
+						break;
+					case "evaluate":
+						if (words.length < 3) {
+							throw new IOException("expected a polynomial file and at least one point");
+						}
+						job.files = new Path[] { dir.resolve(words[1]) };
+						job.points = new float[words.length - 2];
+						for (int i = 2; i < words.length; i++) {
+							job.points[i-2] = Float.parseFloat(words[i]);
+						}
+						break;
+					default:
+						throw new IOException("unknown operation " + job.op);
+					}
+				} catch (IOException | NumberFormatException e) {
+					throw new IOException("Line " + number + " of " + file + ": " + e.getMessage());
+				}
+				jobs.add(job);
+			}
+		}
+		return jobs;
+	}
+
+	/**
+	 * Runs jobs on a pool and waits for all of them.
+	 *
+	 * @param jobs Jobs
+	 * @param pool Pool to run them on
+	 */
+	void run(List<Job> jobs, ExecutorService pool) {
+		synchronized (polynomials) {
+			for (Job job : jobs) {
+				for (Path file : job.files) {
+					uses.merge(file, 1, Integer::sum);
+				}
+			}
+		}
+		CompletableFuture<?>[] done = new CompletableFuture<?>[jobs.size()];
+		for (int i = 0; i < done.length; i++) {
+			Job job = jobs.get(i);
+			done[i] = CompletableFuture.runAsync(() -> runJob(job), pool);
+		}
+		CompletableFuture.allOf(done).join();
+	}
+
+	/**
+	 * Runs one job and writes its result.
+	 *
+	 * @param job Job
+	 */
+	private void runJob(Job job) {
+		long start = System.nanoTime();
+		ArrayPolynomial result = null;
+		float[] values = null;
+		Exception error = null;
+		try {
+			ArrayPolynomial p = load(job.files[0]);
+			switch (job.op) {
+			case "add":
+				result = p.add(load(job.files[1]));
+				break;
+			case "multiply":
+				result = p.multiply(load(job.files[1]));
+				break;
+			default:
+				values = new float[job.points.length];
+				p.evaluate(job.points, values);
+				break;
+			}
+		} catch (Exception e) {
+			failures.incrementAndGet();
+			error = e;
+		} finally {
+			for (Path file : job.files) {
+				release(file);
+			}
+		}
+		long latency = System.nanoTime() - start;
+
+		synchronized (this) {
+			try {
+				out.append('#').append(Integer.toString(job.line)).append(' ').append(job.text).append(": ");
+				if (error != null) {
+					out.append("error: ").append(error.toString());
+				} else if (result != null) {
+					result.writeTo(out);
+				} else {
+					for (int i = 0; i < values.length; i++) {
+						out.append(i == 0 ? "" : " ").append(Float.toString(job.points[i])).append('=')
+								.append(Float.toString(values[i]));
+					}
+				}
+				out.append('\n');
+			} catch (IOException e) {
+				throw new java.io.UncheckedIOException(e);
+			}
+			latencies.computeIfAbsent(job.op, k -> new ArrayList<Long>()).add(latency);
+		}
+	}
+
+	/**
+	 * Reads a polynomial file, or waits for the job already reading it.
+	 *
+	 * @param file Polynomial file
+	 * @return Polynomial in the file
+	 * @throws IOException If the file cannot be read
+	 */
+	private ArrayPolynomial load(Path file) throws IOException {
+		CompletableFuture<ArrayPolynomial> mine = new CompletableFuture<ArrayPolynomial>();
+		CompletableFuture<ArrayPolynomial> f;
+		synchronized (polynomials) {
+			f = polynomials.putIfAbsent(file, mine);
+		}
+		if (f == null) {
+			f = mine;
+			try {
+				ArrayPolynomial p = PolynomialReader.read(file);
+				synchronized (polynomials) {
+					// Completed under the lock, so a kept polynomial is always counted.
+					mine.complete(p);
+					if (polynomials.get(file) == mine) {
+						cachedTerms += p.size;
+						evict(file);
+					}
+				}
+			} catch (IOException | RuntimeException e) {
+				mine.completeExceptionally(e);
+			}
+		}
+		try {
+			return f.join();
+		} catch (java.util.concurrent.CompletionException e) {
+			throw e.getCause() instanceof IOException ? (IOException)e.getCause()
+					: new IOException(e.getCause().getMessage(), e.getCause());
+		}
+	}
+
+	/**
+	 * Drops the least recently used polynomials until the rest fit in
+	 * {@link #CACHE_TERMS}. Must be called holding the lock on polynomials.
+	 *
+	 * @param keep File just read, which is not dropped
+	 */
+	private void evict(Path keep) {
+		Iterator<Map.Entry<Path, CompletableFuture<ArrayPolynomial>>> it = polynomials.entrySet().iterator();
+		while (cachedTerms > CACHE_TERMS && it.hasNext()) {
+			Map.Entry<Path, CompletableFuture<ArrayPolynomial>> e = it.next();
+			if (!e.getKey().equals(keep) && e.getValue().isDone() && !e.getValue().isCompletedExceptionally()) {
+				cachedTerms -= e.getValue().join().size;
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Records that a job is done with a file, and drops its polynomial if no job left
+	 * to run needs it.
+	 *
+	 * @param file Polynomial file
+	 */
+	private void release(Path file) {
+		synchronized (polynomials) {
+			int left = uses.merge(file, -1, Integer::sum);
+			if (left > 0) {
+				return;
+			}
+			uses.remove(file);
+			CompletableFuture<ArrayPolynomial> f = polynomials.remove(file);
+			if (f != null && f.isDone() && !f.isCompletedExceptionally()) {
+				cachedTerms -= f.join().size;
+			}
+		}
+	}
+
+	/**
+	 * Prints the number of jobs, throughput and latencies of each operation.
+	 *
+	 * @param elapsed Wall time of the whole run in nanoseconds
+	 */
+	void printStatistics(long elapsed) {
+		double seconds = elapsed / 1e9;
+		System.out.printf("%-10s %8s %12s %12s %12s %12s %12s %12s%n",
+				"operation", "jobs", "jobs/s", "mean ms", "p50 ms", "p95 ms", "p99 ms", "max ms");
+		int total = 0;
+		synchronized (this) {
+			for (Map.Entry<String, List<Long>> e : latencies.entrySet()) {
+				long[] l = e.getValue().stream().mapToLong(Long::longValue).toArray();
+				Arrays.sort(l);
+				total += l.length;
+				System.out.printf("%-10s %8d %12.1f %12.3f %12.3f %12.3f %12.3f %12.3f%n", e.getKey(), l.length,
+						l.length / seconds, Arrays.stream(l).average().orElse(0) / 1e6, percentile(l, 50) / 1e6,
+						percentile(l, 95) / 1e6, percentile(l, 99) / 1e6, l[l.length-1] / 1e6);
+			}
+		}
+		System.out.printf("%d jobs (%d failed) in %.3f s, %.1f jobs/s%n", total, failures.get(), seconds, total / seconds);
+	}
+
+	/**
+	 * Returns a percentile of sorted values, by the nearest rank method.
+	 *
+	 * @param sorted Values in ascending order, at least one
+	 * @param p Percentile, 0 to 100
+	 * @return Value at that percentile
+	 */
+	static long percentile(long[] sorted, double p) {
+		int rank = (int)Math.ceil(p / 100 * sorted.length);
+		return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)];
+	}
+}
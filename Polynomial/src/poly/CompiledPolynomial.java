@@ -0,0 +1,193 @@
+package poly;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * This class evaluates one fixed polynomial with its degrees and coefficients baked
+ * in as constants. Use it for a polynomial that is evaluated very many times; get one
+ * from {@link Polynomial#compile()} or {@link ArrayPolynomial#compile()}.
+ * <p>
+ * The evaluation is built out of method handle combinators: one Horner step per
+ * term, each with its coefficient and degree gap bound in, chained together. The
+ * chain is then handed as class data to a fresh hidden copy of
+ * {@link CompiledTemplate}, which holds it in a static final field. The JIT treats
+ * such a field as a constant, so it inlines the whole chain and folds the constants
+ * into straight-line code, with no list or array to walk.
+ * <p>
+ * Polynomials with more than {@link #UNROLL_TERMS} terms are not unrolled, since the
+ * JIT stops inlining deep chains; their handle calls the array Horner loop with the
+ * arrays bound in. If the template cannot be loaded, the handle is kept in an
+ * ordinary field instead, which is correct but not constant folded.
+ * <p>
+ * Both entry points compute in double precision, like {@link Polynomial#evaluate(float)}.
+ *
+ * @author runb-cs112
+ *
+ */
+public abstract class CompiledPolynomial {
+
+	/**
+	 * Largest number of terms unrolled into a chain of Horner steps.
+	 */
+	static final int UNROLL_TERMS = 64;
+
+	/**
+	 * Horner steps, as method handles taking (acc, x, ...).
+	 */
+	private static final MethodHandle STEP, STEP_GAP, SCALE, SPARSE;
+
+	static {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			STEP = lookup.findStatic(CompiledPolynomial.class, "step",
+					MethodType.methodType(double.class, double.class, double.class, double.class));
+			STEP_GAP = lookup.findStatic(CompiledPolynomial.class, "step",
+					MethodType.methodType(double.class, double.class, double.class, int.class, double.class));
+			SCALE = lookup.findStatic(CompiledPolynomial.class, "scale",
+					MethodType.methodType(double.class, double.class, double.class, int.class));
+			SPARSE = lookup.findStatic(Horner.class, "sparse",
+					MethodType.methodType(double.class, int[].class, float[].class, int.class, double.class));
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	/**
+	 * Only subclasses in this package.
+	 */
+	CompiledPolynomial() {
+	}
+
+	/**
+	 * Evaluates the polynomial at the given value of x
+	 *
+	 * @param x Value at which the polynomial is to be evaluated
+	 * @return Value of the polynomial at x
+	 */
+	public abstract double evaluate(double x);
+
+	/**
+	 * Evaluates the polynomial at the given value of x
+	 *
+	 * @param x Value at which the polynomial is to be evaluated
+	 * @return Value of the polynomial at x
+	 */
+	public float evaluate(float x) {
+		return (float)evaluate((double)x);
+	}
+
+	/**
+	 * Compiles a polynomial.
+	 *
+	 * @param p Polynomial
+	 * @return Evaluator for p
+	 */
+	static CompiledPolynomial compile(ArrayPolynomial p) {
+		MethodHandle handle = handle(p.toSparse());
+		try {
+			byte[] template;
+			try (InputStream in = CompiledPolynomial.class.getResourceAsStream("CompiledTemplate.class")) {
+				if (in == null) {
+					return new Interpreted(handle);
+				}
+				template = in.readAllBytes();
+			}
+			MethodHandles.Lookup hidden = MethodHandles.lookup().defineHiddenClassWithClassData(template, handle, true);
+			return (CompiledPolynomial)hidden.findConstructor(hidden.lookupClass(), MethodType.methodType(void.class))
+					.invoke();
+		} catch (IOException | ReflectiveOperationException e) {
+			return new Interpreted(handle);
+		} catch (Throwable t) {
+			throw new IllegalStateException("Cannot compile polynomial", t);
+		}
+	}
+
+	/**
+	 * Builds the method handle that evaluates a polynomial.
+	 *
+	 * @param p Sparse polynomial
+	 * @return Handle of type (double)double
+	 */
+	static MethodHandle handle(ArrayPolynomial p) {
+		int n = p.size;
+		if (n == 0) {
+			return MethodHandles.dropArguments(MethodHandles.constant(double.class, 0.0), 0, double.class);
+		}
+		if (n > UNROLL_TERMS) {
+			return MethodHandles.insertArguments(SPARSE, 0, p.degrees, p.coeffs, n);
+		}
+
+		// Horner's scheme from the highest term down: acc = acc * x^gap + c.
+		MethodHandle h = MethodHandles.dropArguments(MethodHandles.constant(double.class, (double)p.coeffs[n-1]),
+				0, double.class);
+		for (int i = n-2; i >= 0; i--) {
+			int gap = p.degrees[i+1] - p.degrees[i];
+			MethodHandle step = gap == 1
+					? MethodHandles.insertArguments(STEP, 2, (double)p.coeffs[i])
+					: MethodHandles.insertArguments(STEP_GAP, 2, gap, (double)p.coeffs[i]);
+			h = chain(h, step);
+		}
+		if (p.degrees[0] > 0) {
+			h = chain(h, MethodHandles.insertArguments(SCALE, 2, p.degrees[0]));
+		}
+		return h;
+	}
+
+	/**
+	 * Feeds the result of one handle into the next.
+	 *
+	 * @param h Handle of type (x)acc
+	 * @param step Handle of type (acc, x)acc
+	 * @return Handle of type (x)acc computing step(h(x), x)
+	 */
+	private static MethodHandle chain(MethodHandle h, MethodHandle step) {
+		MethodHandle both = MethodHandles.collectArguments(step, 0, h);
+		return MethodHandles.permuteArguments(both, MethodType.methodType(double.class, double.class), 0, 0);
+	}
+
+	/**
+	 * Horner step for consecutive degrees.
+	 */
+	private static double step(double acc, double x, double c) {
+		return acc * x + c;
+	}
+
+	/**
+	 * Horner step over a gap in the degrees.
+	 */
+	private static double step(double acc, double x, int gap, double c) {
+		return acc * Horner.pow(x, gap) + c;
+	}
+
+	/**
+	 * Multiplies by x to the lowest degree.
+	 */
+	private static double scale(double acc, double x, int degree) {
+		return acc * Horner.pow(x, degree);
+	}
+
+	/**
+	 * Evaluator that keeps its handle in an instance field, used when the template
+	 * class cannot be loaded.
+	 */
+	private static final class Interpreted extends CompiledPolynomial {
+
+		private final MethodHandle handle;
+
+		Interpreted(MethodHandle handle) {
+			this.handle = handle;
+		}
+
+		public double evaluate(double x) {
+			try {
+				return (double)handle.invokeExact(x);
+			} catch (Throwable t) {
+				throw new IllegalStateException(t);
+			}
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package poly;
+
+import java.lang.constant.ConstantDescs;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+
+/**
+ * This class is never used as it is: its bytes are the template from which
+ * {@link CompiledPolynomial#compile(ArrayPolynomial)} defines one hidden class per
+ * compiled polynomial, with that polynomial's method handle as class data. The handle
+ * ends up in a static final field, which the JIT treats as a constant.
+ *
+ * @author runb-cs112
+ *
+ */
+final class CompiledTemplate extends CompiledPolynomial {
+
+	/**
+	 * Handle of type (double)double that evaluates the polynomial.
+	 */
+	private static final MethodHandle HANDLE = classData();
+
+	/**
+	 * Reads the class data of this hidden class.
+	 *
+	 * @return Evaluating handle
+	 */
+	private static MethodHandle classData() {
+		try {
+			return MethodHandles.classData(MethodHandles.lookup(), ConstantDescs.DEFAULT_NAME, MethodHandle.class);
+		} catch (IllegalAccessException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see poly.CompiledPolynomial#evaluate(double)
+	 */
+	public double evaluate(double x) {
+		try {
+			return (double)HANDLE.invokeExact(x);
+		} catch (Throwable t) {
+			throw new IllegalStateException(t);
+		}
+	}
+}
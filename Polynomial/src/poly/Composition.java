@@ -0,0 +1,130 @@
+package poly;
+
+/**
+ * This class computes compositions p(q(x)) and powers p^k with the array
+ * multiplication engines, so no product goes through the linked list.
+ * <p>
+ * Composition is divide and conquer in the style of Brent and Kung: the coefficients
+ * of p are split into a low and a high half of length m, a power of two, and
+ * <pre>
+ *     p(q) = p_low(q) + q^m * p_high(q)
+ * </pre>
+ * with the powers q, q^2, q^4, ... squared once up front and shared by all levels.
+ * Every level then does products of balanced size, which is where the fast multiply
+ * pays off, instead of the long chain of small-times-large products of Horner's
+ * scheme.
+ * <p>
+ * Powers use repeated squaring. With a maximum degree, every intermediate product is
+ * cut back to that degree, which keeps truncated power series cheap.
+ *
+ * @author runb-cs112
+ *
+ */
+class Composition {
+
+	/**
+	 * Returns p(q(x)).
+	 *
+	 * @param p Outer polynomial
+	 * @param q Inner polynomial
+	 * @return Composition of p and q
+	 */
+	static ArrayPolynomial compose(ArrayPolynomial p, ArrayPolynomial q) {
+		if (p.size == 0) {
+			return p;
+		}
+		ArrayPolynomial c = p.toDense();
+
+		// squares[k] = q^(2^k), for every block length used below.
+		int levels = 0;
+		while ((1L << levels) < c.size) {
+			levels++;
+		}
+		ArrayPolynomial[] squares = new ArrayPolynomial[Math.max(levels, 1)];
+		squares[0] = q;
+		for (int k = 1; k < levels; k++) {
+			squares[k] = squares[k-1].multiply(squares[k-1]);
+		}
+		return compose(c.coeffs, c.size, 0, levels, squares);
+	}
+
+	/**
+	 * Composes the block of 2^level coefficients of p starting at lo with q.
+	 *
+	 * @param coeffs Dense coefficients of p
+	 * @param n Number of coefficients of p
+	 * @param lo First coefficient of the block
+	 * @param level Base 2 logarithm of the block length
+	 * @param squares q^(2^k) at index k
+	 * @return Block of p, as a polynomial of its own, composed with q
+	 */
+	private static ArrayPolynomial compose(float[] coeffs, int n, int lo, int level, ArrayPolynomial[] squares) {
+		if (level == 0) {
+			return constant(coeffs[lo]);
+		}
+		int half = 1 << (level-1);
+		ArrayPolynomial low = compose(coeffs, n, lo, level-1, squares);
+		if (lo + half >= n) {
+			return low;
+		}
+		ArrayPolynomial high = compose(coeffs, n, lo + half, level-1, squares);
+		return low.add(squares[level-1].multiply(high));
+	}
+
+	/**
+	 * Returns p^k, leaving out all terms above the given degree.
+	 *
+	 * @param p Polynomial to be raised to a power
+	 * @param k Exponent
+	 * @param maxDegree Highest degree kept, or a negative number to keep everything
+	 * @return Power of p
+	 * @throws IllegalArgumentException If k is negative
+	 */
+	static ArrayPolynomial pow(ArrayPolynomial p, int k, int maxDegree) {
+		if (k < 0) {
+			throw new IllegalArgumentException("Negative exponent " + k);
+		}
+		ArrayPolynomial result = truncate(constant(1), maxDegree);
+		ArrayPolynomial square = truncate(p, maxDegree);
+		while (k > 0) {
+			if ((k & 1) != 0) {
+				result = truncate(result.multiply(square), maxDegree);
+			}
+			k >>= 1;
+			if (k > 0) {
+				square = truncate(square.multiply(square), maxDegree);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Leaves out all terms above the given degree.
+	 *
+	 * @param p Polynomial
+	 * @param maxDegree Highest degree kept, or a negative number to keep everything
+	 * @return p, or its terms up to maxDegree
+	 */
+	static ArrayPolynomial truncate(ArrayPolynomial p, int maxDegree) {
+		if (maxDegree < 0 || p.degree() <= maxDegree) {
+			return p;
+		}
+		if (p.isDense()) {
+			return ArrayPolynomial.dense(java.util.Arrays.copyOf(p.coeffs, maxDegree + 1), maxDegree + 1);
+		}
+		int n = java.util.Arrays.binarySearch(p.degrees, 0, p.size, maxDegree + 1);
+		n = n < 0 ? -n - 1 : n;
+		return new ArrayPolynomial(java.util.Arrays.copyOf(p.degrees, n), java.util.Arrays.copyOf(p.coeffs, n), n)
+				.withBestLayout();
+	}
+
+	/**
+	 * Returns the constant polynomial c.
+	 *
+	 * @param c Constant
+	 * @return Polynomial with the single term c, or zero
+	 */
+	private static ArrayPolynomial constant(float c) {
+		return ArrayPolynomial.dense(new float[] { c }, 1);
+	}
+}
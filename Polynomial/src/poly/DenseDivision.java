@@ -0,0 +1,197 @@
+package poly;
+
+/**
+ * This class divides dense polynomials given as coefficient arrays indexed by
+ * degree. Short quotients or divisors use classical long division. Longer ones use
+ * Newton iteration: the reversed quotient is the reversed dividend times the inverse
+ * power series of the reversed divisor, and that series is found by doubling its
+ * precision at each step, g' = g*(2 - f*g). With a sub-quadratic multiply underneath
+ * (see {@link DenseMultiplier}) the whole division costs a small constant times one
+ * multiplication.
+ * <p>
+ * Arithmetic is done in double precision.
+ *
+ * @author runb-cs112
+ *
+ */
+class DenseDivision {
+
+	/**
+	 * When the quotient or the divisor has fewer coefficients than this, long division
+	 * is used.
+	 */
+	static final int NEWTON_THRESHOLD = 64;
+
+	/**
+	 * Relative size below which a remainder coefficient is taken to be zero by
+	 * {@link #gcd}, a little above float precision.
+	 */
+	static final double GCD_TOLERANCE = 1e-5;
+
+	/**
+	 * Returns the number of coefficients up to and including the highest non-zero one.
+	 *
+	 * @param a Coefficients
+	 * @param n Number of coefficients to look at
+	 * @return Trimmed length, 0 if all coefficients are zero
+	 */
+	static int length(double[] a, int n) {
+		while (n > 0 && a[n-1] == 0) {
+			n--;
+		}
+		return n;
+	}
+
+	/**
+	 * Divides a by b.
+	 *
+	 * @param a Coefficients of the dividend
+	 * @param b Coefficients of the divisor, not all zero
+	 * @return Two arrays: the coefficients of the quotient, then of the remainder
+	 * @throws ArithmeticException If b is zero
+	 */
+	static double[][] divide(double[] a, double[] b) {
+		int na = length(a, a.length);
+		int nb = length(b, b.length);
+		if (nb == 0) {
+			throw new ArithmeticException("Division by zero polynomial");
+		}
+		if (na < nb) {
+			return new double[][] { new double[0], java.util.Arrays.copyOf(a, na) };
+		}
+
+		int nq = na - nb + 1;
+		if (Math.min(nq, nb) < NEWTON_THRESHOLD) {
+			return longDivision(a, na, b, nb);
+		}
+
+		// rev(q) = rev(a) / rev(b) mod x^nq
+		double[] ra = new double[nq];
+		for (int i = 0; i < nq; i++) {
+			ra[i] = a[na-1-i];
+		}
+		double[] rb = new double[Math.min(nb, nq)];
+		for (int i = 0; i < rb.length; i++) {
+			rb[i] = b[nb-1-i];
+		}
+		double[] rq = DenseMultiplier.multiply(ra, nq, reciprocal(rb, nq), nq);
+		double[] q = new double[nq];
+		for (int i = 0; i < nq; i++) {
+			q[i] = rq[nq-1-i];
+		}
+
+		// r = a - q*b, which only has nb-1 coefficients left.
+		double[] qb = DenseMultiplier.multiply(q, nq, b, nb);
+		double[] r = new double[nb-1];
+		for (int i = 0; i < nb-1; i++) {
+			r[i] = a[i] - qb[i];
+		}
+		return new double[][] { q, java.util.Arrays.copyOf(r, length(r, r.length)) };
+	}
+
+	/**
+	 * Returns the remainder of a divided by b.
+	 *
+	 * @param a Coefficients of the dividend
+	 * @param b Coefficients of the divisor, not all zero
+	 * @return Coefficients of the remainder
+	 * @throws ArithmeticException If b is zero
+	 */
+	static double[] remainder(double[] a, double[] b) {
+		if (length(a, a.length) < length(b, b.length)) {
+			return a;
+		}
+		return divide(a, b)[1];
+	}
+
+	/**
+	 * Returns the monic greatest common divisor of a and b, by Euclid's algorithm on
+	 * top of {@link #divide}. Since the coefficients are rounded, a remainder counts as
+	 * zero once all its coefficients are within {@link #GCD_TOLERANCE} of the largest
+	 * coefficient of the dividend.
+	 *
+	 * @param a Coefficients of the first polynomial
+	 * @param b Coefficients of the second polynomial
+	 * @return Coefficients of the gcd, leading coefficient 1; empty if both are zero
+	 */
+	static double[] gcd(double[] a, double[] b) {
+		a = java.util.Arrays.copyOf(a, length(a, a.length));
+		b = java.util.Arrays.copyOf(b, length(b, b.length));
+		while (b.length > 0) {
+			double[] r = divide(a, b)[1];
+			double scale = 0;
+			for (double c : a) {
+				scale = Math.max(scale, Math.abs(c));
+			}
+			for (int i = 0; i < r.length; i++) {
+				if (Math.abs(r[i]) <= GCD_TOLERANCE * scale) {
+					r[i] = 0;
+				}
+			}
+			a = b;
+			b = java.util.Arrays.copyOf(r, length(r, r.length));
+		}
+
+		double lead = a.length == 0 ? 1 : a[a.length-1];
+		for (int i = 0; i < a.length; i++) {
+			a[i] /= lead;
+		}
+		return a;
+	}
+
+	/**
+	 * Divides a by b with classical long division.
+	 *
+	 * @param a Coefficients of the dividend
+	 * @param na Number of coefficients of a, the last one non-zero
+	 * @param b Coefficients of the divisor
+	 * @param nb Number of coefficients of b, the last one non-zero, at most na
+	 * @return Two arrays: the coefficients of the quotient, then of the remainder
+	 */
+	static double[][] longDivision(double[] a, int na, double[] b, int nb) {
+		double[] r = java.util.Arrays.copyOf(a, na);
+		double[] q = new double[na - nb + 1];
+		double lead = b[nb-1];
+
+		for (int i = q.length-1; i >= 0; i--) {
+			double c = r[i+nb-1] / lead;
+			q[i] = c;
+			if (c == 0) {
+				continue;
+			}
+			for (int j = 0; j < nb; j++) {
+				r[i+j] -= c * b[j];
+			}
+		}
+		return new double[][] { q, java.util.Arrays.copyOf(r, length(r, nb-1)) };
+	}
+
+	/**
+	 * Computes the power series inverse g of f modulo x^n, i.e. f*g = 1 mod x^n.
+	 *
+	 * @param f Coefficients of f, with f[0] not zero
+	 * @param n Number of coefficients wanted
+	 * @return First n coefficients of 1/f
+	 */
+	static double[] reciprocal(double[] f, int n) {
+		double[] g = { 1 / f[0] };
+		int k = 1;
+		while (k < n) {
+			int k2 = Math.min(2*k, n);
+
+			// e = 2 - f*g mod x^k2
+			double[] fg = DenseMultiplier.multiply(f, Math.min(f.length, k2), g, g.length);
+			double[] e = new double[k2];
+			for (int i = 0; i < k2 && i < fg.length; i++) {
+				e[i] = -fg[i];
+			}
+			e[0] += 2;
+
+			// g = g*e mod x^k2
+			double[] ge = DenseMultiplier.multiply(g, g.length, e, k2);
+			g = java.util.Arrays.copyOf(ge, k2);
+			k = k2;
+		}
+		return g;
+	}
+}
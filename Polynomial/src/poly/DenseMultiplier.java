@@ -0,0 +1,179 @@
+package poly;
+
+/**
+ * This class multiplies dense polynomials given as coefficient arrays indexed by
+ * degree. Small operands use the schoolbook double loop; larger ones use Karatsuba's
+ * method, which splits each operand in half and needs three half-size products
+ * instead of four, for O(n^1.585) work instead of O(n^2). The largest operands go
+ * through a transform in O(n log n): the exact {@link NTTMultiplier} when all the
+ * coefficients are integers, the floating-point {@link FFTMultiplier} otherwise.
+ * <p>
+ * Arithmetic is done in double precision so that rounding of the float coefficients
+ * stored in polynomials happens only once, on the final result.
+ *
+ * @author runb-cs112
+ *
+ */
+class DenseMultiplier {
+
+	/**
+	 * Operands shorter than this are multiplied with the schoolbook method. Below
+	 * this size the bookkeeping of Karatsuba costs more than the products it saves.
+	 */
+	static final int KARATSUBA_THRESHOLD = 48;
+
+	/**
+	 * Operands at least this long are multiplied with a transform instead of
+	 * Karatsuba's method.
+	 */
+	static final int FFT_THRESHOLD = 256;
+
+	/**
+	 * Multiplies two dense polynomials, choosing the method from their sizes.
+	 *
+	 * @param a Coefficients of the first polynomial
+	 * @param na Number of coefficients of a to use
+	 * @param b Coefficients of the second polynomial
+	 * @param nb Number of coefficients of b to use
+	 * @return Coefficients of the product, na+nb-1 of them
+	 */
+	static double[] multiply(double[] a, int na, double[] b, int nb) {
+		if (na == 0 || nb == 0) {
+			return new double[0];
+		}
+		if (Math.min(na, nb) < KARATSUBA_THRESHOLD) {
+			return schoolbook(a, na, b, nb);
+		}
+		if (Math.min(na, nb) < FFT_THRESHOLD) {
+			return karatsuba(a, na, b, nb);
+		}
+		
+		double[] r = null;
+		if (NTTMultiplier.isIntegral(a, na) && NTTMultiplier.isIntegral(b, nb)) {
+			r = NTTMultiplier.multiplyExact(a, na, b, nb);
+		}
+		return r != null ? r : FFTMultiplier.multiply(a, na, b, nb);
+	}
+
+	/**
+	 * Multiplies two dense polynomials with the schoolbook double loop.
+	 *
+	 * @param a Coefficients of the first polynomial
+	 * @param na Number of coefficients of a to use
+	 * @param b Coefficients of the second polynomial
+	 * @param nb Number of coefficients of b to use
+	 * @return Coefficients of the product, na+nb-1 of them
+	 */
+	static double[] schoolbook(double[] a, int na, double[] b, int nb) {
+		double[] r = new double[na + nb - 1];
+		for (int i = 0; i < na; i++) {
+			double ai = a[i];
+			if (ai == 0) {
+				continue;
+			}
+			for (int j = 0; j < nb; j++) {
+				r[i+j] += ai * b[j];
+			}
+		}
+		return r;
+	}
+
+	/**
+	 * Multiplies two dense polynomials with Karatsuba's method. The longer operand is
+	 * cut into pieces as long as the shorter one, so that every recursive product is
+	 * between operands of equal length.
+	 *
+	 * @param a Coefficients of the first polynomial
+	 * @param na Number of coefficients of a to use
+	 * @param b Coefficients of the second polynomial
+	 * @param nb Number of coefficients of b to use
+	 * @return Coefficients of the product, na+nb-1 of them
+	 */
+	static double[] karatsuba(double[] a, int na, double[] b, int nb) {
+		if (na < nb) {
+			double[] t = a; a = b; b = t;
+			int n = na; na = nb; nb = n;
+		}
+
+		double[] r = new double[na + nb - 1];
+		double[] piece = new double[nb];
+		double[] prod = new double[2*nb - 1];
+		double[] work = new double[4*nb + 128];
+
+		for (int start = 0; start < na; start += nb) {
+			int len = Math.min(nb, na - start);
+			if (len == nb) {
+				kara(a, start, b, 0, nb, prod, 0, work, 0);
+				for (int i = 0; i < 2*nb - 1; i++) {
+					r[start+i] += prod[i];
+				}
+			} else {
+				// Last, shorter piece.
+				System.arraycopy(a, start, piece, 0, len);
+				double[] tail = multiply(piece, len, b, nb);
+				for (int i = 0; i < tail.length; i++) {
+					r[start+i] += tail[i];
+				}
+			}
+		}
+		return r;
+	}
+
+	/**
+	 * Multiplies n coefficients of a starting at ao with n coefficients of b starting
+	 * at bo, and writes the 2n-1 coefficients of the product into r starting at ro.
+	 *
+	 * @param a First operand
+	 * @param ao Offset of the first operand
+	 * @param b Second operand
+	 * @param bo Offset of the second operand
+	 * @param n Length of both operands
+	 * @param r Array to hold the product
+	 * @param ro Offset of the product
+	 * @param w Scratch array, with at least 4n+128 free entries from wo on
+	 * @param wo Offset of the free part of the scratch array
+	 */
+	private static void kara(double[] a, int ao, double[] b, int bo, int n,
+			double[] r, int ro, double[] w, int wo) {
+		if (n < KARATSUBA_THRESHOLD) {
+			for (int i = 0; i < 2*n - 1; i++) {
+				r[ro+i] = 0;
+			}
+			for (int i = 0; i < n; i++) {
+				double ai = a[ao+i];
+				for (int j = 0; j < n; j++) {
+					r[ro+i+j] += ai * b[bo+j];
+				}
+			}
+			return;
+		}
+
+		// Split into low halves of length h and high halves of length hh >= h.
+		int h = n >>> 1;
+		int hh = n - h;
+
+		// z0 = low*low goes to the bottom of r, z2 = high*high right above it.
+		kara(a, ao, b, bo, h, r, ro, w, wo);
+		r[ro + 2*h - 1] = 0;
+		kara(a, ao+h, b, bo+h, hh, r, ro + 2*h, w, wo);
+
+		// z1 = (low+high)*(low+high) - z0 - z2, computed in the scratch array.
+		int as = wo, bs = wo + hh, z1 = wo + 2*hh;
+		for (int i = 0; i < hh; i++) {
+			w[as+i] = a[ao+h+i] + (i < h ? a[ao+i] : 0);
+			w[bs+i] = b[bo+h+i] + (i < h ? b[bo+i] : 0);
+		}
+		kara(w, as, w, bs, hh, w, z1, w, wo + 4*hh);
+		for (int i = 0; i < 2*h - 1; i++) {
+			w[z1+i] -= r[ro+i];
+		}
+		for (int i = 0; i < 2*hh - 1; i++) {
+			w[z1+i] -= r[ro + 2*h + i];
+		}
+
+		// Add z1 in at the middle.
+		for (int i = 0; i < 2*hh - 1; i++) {
+			r[ro+h+i] += w[z1+i];
+		}
+	}
+}
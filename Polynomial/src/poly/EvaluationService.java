@@ -0,0 +1,179 @@
+package poly;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * This class evaluates shared {@link ImmutablePolynomial}s for many callers at once.
+ * Single points are submitted as separate tasks, and large batches of points are cut
+ * into one chunk per core so they use the whole machine. Since the polynomials never
+ * change, every task reads the same instance without copying or locking it.
+ * <p>
+ * By default tasks run on virtual threads, one per task, when the JDK has them
+ * (Java 21 and later; they are looked up by reflection so this class also runs on
+ * older JDKs). Otherwise a fixed pool with one platform thread per core is used, which
+ * gives the same scaling for this CPU-bound work.
+ *
+ * @author runb-cs112
+ *
+ */
+public class EvaluationService implements AutoCloseable {
+
+	/**
+	 * Batches with fewer points than this are evaluated in a single task.
+	 */
+	static final int MIN_CHUNK_POINTS = 1024;
+
+	/**
+	 * Executor that runs the tasks.
+	 */
+	private final ExecutorService executor;
+
+	/**
+	 * Number of chunks a large batch is cut into.
+	 */
+	private final int chunks;
+
+	/**
+	 * Initializes a service on virtual threads if the JDK has them, or else on a
+	 * fixed pool with one thread per core.
+	 */
+	public EvaluationService() {
+		this(defaultExecutor());
+	}
+
+	/**
+	 * Initializes a service that runs its tasks on the given executor. The executor is
+	 * shut down by {@link #close()}.
+	 *
+	 * @param executor Executor to run the tasks
+	 */
+	public EvaluationService(ExecutorService executor) {
+		this.executor = executor;
+		this.chunks = Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Makes a virtual thread per task executor if the JDK has one, or else a fixed
+	 * pool with one thread per core.
+	 *
+	 * @return Executor
+	 */
+	static ExecutorService defaultExecutor() {
+		try {
+			Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService)m.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			// Not there before Java 21.
+			return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+				Thread t = new Thread(r, "poly-eval");
+				t.setDaemon(true);
+				return t;
+			});
+		}
+	}
+
+	/**
+	 * Evaluates a polynomial at one point, in the background.
+	 *
+	 * @param p Polynomial
+	 * @param x Value at which p is to be evaluated
+	 * @return Future value of p at x
+	 */
+	public CompletableFuture<Float> submit(ImmutablePolynomial p, float x) {
+		return CompletableFuture.supplyAsync(() -> p.evaluate(x), executor);
+	}
+
+	/**
+	 * Evaluates a polynomial at each of the given points, splitting large batches over
+	 * all cores, and waits for the result. If a chunk fails or the caller is
+	 * interrupted, chunks that have not started are skipped, and this method still
+	 * waits for those already running, so out is no longer written once it returns or
+	 * throws.
+	 *
+	 * @param p Polynomial
+	 * @param xs Values at which p is to be evaluated
+	 * @param out Array to hold the value of p at xs[i] in out[i]
+	 * @throws IllegalArgumentException If out is shorter than xs
+	 * @throws InterruptedException If the calling thread is interrupted while waiting
+	 */
+	public void evaluate(ImmutablePolynomial p, float[] xs, float[] out) throws InterruptedException {
+		if (out.length < xs.length) {
+			throw new IllegalArgumentException("Output array too short: " + out.length + " < " + xs.length);
+		}
+		int n = xs.length;
+		int parts = Math.min(chunks, Math.max(1, n / MIN_CHUNK_POINTS));
+		if (parts == 1) {
+			p.evaluate(xs, out);
+			return;
+		}
+
+		// Each chunk reads and writes its own range of the caller's arrays in place.
+		ArrayPolynomial terms = p.toArrayPolynomial();
+		AtomicBoolean abandoned = new AtomicBoolean();
+		List<Future<?>> futures = new ArrayList<Future<?>>(parts);
+		Throwable failure = null;
+		try {
+			for (int c = 0; c < parts; c++) {
+				int lo = (int)((long)n * c / parts), hi = (int)((long)n * (c+1) / parts);
+				futures.add(executor.submit(() -> {
+					if (!abandoned.get()) {
+						terms.evaluate(xs, out, lo, hi);
+					}
+				}));
+			}
+		} catch (RuntimeException e) {
+			// Rejected, e.g. after close: the chunks already submitted still run.
+			abandoned.set(true);
+			failure = e;
+		}
+
+		// Every chunk is waited for, even after a failure, since a running chunk
+		// cannot be stopped from writing into out.
+		boolean interrupted = false;
+		for (Future<?> f : futures) {
+			while (true) {
+				try {
+					f.get();
+					break;
+				} catch (ExecutionException e) {
+					abandoned.set(true);
+					if (failure == null) {
+						failure = e.getCause();
+					}
+					break;
+				} catch (InterruptedException e) {
+					abandoned.set(true);
+					interrupted = true;
+				}
+			}
+		}
+		if (interrupted) {
+			throw new InterruptedException("Interrupted while evaluating");
+		}
+		if (failure instanceof RuntimeException) {
+			throw (RuntimeException)failure;
+		}
+		if (failure instanceof Error) {
+			throw (Error)failure;
+		}
+		if (failure != null) {
+			throw new IllegalStateException("Evaluation failed", failure);
+		}
+	}
+
+	/**
+	 * Stops accepting tasks and shuts down the executor. Tasks already submitted still
+	 * run to completion.
+	 */
+	public void close() {
+		executor.shutdown();
+	}
+}
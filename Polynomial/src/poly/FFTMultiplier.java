@@ -0,0 +1,131 @@
+package poly;
+
+/**
+ * This class multiplies dense polynomials with a floating-point fast Fourier
+ * transform, in O(n log n) time. Both operands are transformed, multiplied point by
+ * point and transformed back; the product is the convolution of the coefficients.
+ * <p>
+ * <b>Error bound.</b> The transforms run in double precision (unit roundoff
+ * u = 2^-53) with twiddle factors computed directly by {@link Math#cos} and
+ * {@link Math#sin}. For a transform of size N = 2^k, every coefficient of the
+ * product differs from the exact convolution by at most about
+ * <pre>
+ *     c * k * u * ||a|| * ||b||
+ * </pre>
+ * where ||a|| and ||b|| are the Euclidean norms of the coefficient vectors and c is
+ * a small constant (below 5 in practice). The coefficients of {@link Polynomial} are
+ * floats (unit roundoff 2^-24), so as long as ||a||*||b|| is not more than about
+ * 2^25/k times larger than a coefficient of the product, the FFT error is smaller
+ * than the rounding to float that happens anyway. Products whose coefficients
+ * cancel heavily (tiny results from large operands) lose relative accuracy, just as
+ * they do with the schoolbook method; integer-valued operands can be multiplied
+ * exactly with {@link NTTMultiplier} instead.
+ *
+ * @author runb-cs112
+ *
+ */
+class FFTMultiplier {
+
+	/**
+	 * Multiplies two dense polynomials.
+	 *
+	 * @param a Coefficients of the first polynomial
+	 * @param na Number of coefficients of a to use
+	 * @param b Coefficients of the second polynomial
+	 * @param nb Number of coefficients of b to use
+	 * @return Coefficients of the product, na+nb-1 of them
+	 */
+	static double[] multiply(double[] a, int na, double[] b, int nb) {
+		if (na == 0 || nb == 0) {
+			return new double[0];
+		}
+		int len = na + nb - 1;
+		int n = Integer.highestOneBit(len);
+		if (n < len) {
+			n <<= 1;
+		}
+
+		// Both real operands are packed into one complex signal, a in the real part
+		// and b in the imaginary part, so one forward transform serves for both.
+		double[] re = new double[n];
+		double[] im = new double[n];
+		System.arraycopy(a, 0, re, 0, na);
+		System.arraycopy(b, 0, im, 0, nb);
+
+		double[] cos = new double[n/2];
+		double[] sin = new double[n/2];
+		for (int i = 0; i < n/2; i++) {
+			double angle = 2 * Math.PI * i / n;
+			cos[i] = Math.cos(angle);
+			sin[i] = Math.sin(angle);
+		}
+
+		transform(re, im, n, cos, sin, false);
+
+		// With z = A + iB, A[k] = (Z[k] + conj(Z[n-k]))/2 and B[k] = (Z[k] - conj(Z[n-k]))/2i,
+		// so A[k]*B[k] = (Z[k]^2 - conj(Z[n-k])^2)/4i.
+		double[] pr = new double[n];
+		double[] pi = new double[n];
+		for (int k = 0; k < n; k++) {
+			int j = (n - k) & (n - 1);
+			double zr = re[k], zi = im[k];
+			double wr = re[j], wi = -im[j];
+			double sr = zr*zr - zi*zi - (wr*wr - wi*wi);
+			double si = 2*zr*zi - 2*wr*wi;
+			// Divide by 4i: (sr + i si)/(4i) = si/4 - i sr/4
+			pr[k] = si / 4;
+			pi[k] = -sr / 4;
+		}
+
+		transform(pr, pi, n, cos, sin, true);
+
+		double[] r = new double[len];
+		for (int i = 0; i < len; i++) {
+			r[i] = pr[i] / n;
+		}
+		return r;
+	}
+
+	/**
+	 * Runs an in-place iterative radix-2 transform.
+	 *
+	 * @param re Real parts
+	 * @param im Imaginary parts
+	 * @param n Transform size, a power of 2
+	 * @param cos Cosines of 2*pi*i/n for i in 0..n/2-1
+	 * @param sin Sines of 2*pi*i/n for i in 0..n/2-1
+	 * @param inverse True for the inverse transform (without the 1/n scaling)
+	 */
+	static void transform(double[] re, double[] im, int n, double[] cos, double[] sin, boolean inverse) {
+		// Bit-reversal permutation.
+		for (int i = 1, j = 0; i < n; i++) {
+			int bit = n >> 1;
+			for (; (j & bit) != 0; bit >>= 1) {
+				j ^= bit;
+			}
+			j ^= bit;
+			if (i < j) {
+				double t = re[i]; re[i] = re[j]; re[j] = t;
+				t = im[i]; im[i] = im[j]; im[j] = t;
+			}
+		}
+
+		for (int len = 2; len <= n; len <<= 1) {
+			int half = len >> 1;
+			int step = n / len;
+			for (int i = 0; i < n; i += len) {
+				for (int k = 0; k < half; k++) {
+					double wr = cos[k*step];
+					double wi = inverse ? sin[k*step] : -sin[k*step];
+					int u = i + k, v = i + k + half;
+					double xr = re[v]*wr - im[v]*wi;
+					double xi = re[v]*wi + im[v]*wr;
+					re[v] = re[u] - xr;
+					im[v] = im[u] - xi;
+					re[u] += xr;
+					im[u] += xi;
+				}
+			}
+		}
+	}
+}
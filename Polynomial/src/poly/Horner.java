@@ -0,0 +1,147 @@
+package poly;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * This class evaluates polynomials stored in arrays with Horner's scheme. Starting
+ * from the highest degree, the running value is multiplied by x once per degree and
+ * the next coefficient is added, so no power of x is ever formed on its own. Sparse
+ * polynomials skip the missing degrees by multiplying with x^gap, where the gap
+ * between two consecutive degrees is raised by repeated squaring.
+ * <p>
+ * All work is done in double precision and rounded once. Batches of points on dense
+ * polynomials go to {@code VectorHorner} when it has been compiled (it is in the
+ * separate src-vector source root) and the Vector API is available; it does the same
+ * operations in vector lanes, so the values do not depend on the batch size or on
+ * whether the module is there.
+ *
+ * @author runb-cs112
+ *
+ */
+class Horner {
+
+	/**
+	 * Batches with fewer points than this are not worth handing to the vector code.
+	 */
+	static final int VECTOR_MIN_POINTS = 16;
+
+	/**
+	 * Handle on {@code VectorHorner.evaluate}, or null if that class or the Vector API
+	 * module is not available in this run.
+	 */
+	private static final MethodHandle VECTOR = findVector();
+
+	/**
+	 * Looks up the vector evaluator. The class is only loaded here, by name, so that
+	 * the package compiles without it and a missing class or jdk.incubator.vector
+	 * module leaves the scalar code working.
+	 *
+	 * @return Handle on the vector evaluator, or null if it cannot be used
+	 */
+	private static MethodHandle findVector() {
+		if (!ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+			return null;
+		}
+		try {
+			return MethodHandles.lookup().findStatic(Class.forName("poly.VectorHorner"), "evaluate",
+					MethodType.methodType(void.class, float[].class, int.class, float[].class, float[].class,
+							int.class, int.class));
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Tells whether batches of points are evaluated with the Vector API.
+	 *
+	 * @return True if the vector evaluator is in use
+	 */
+	static boolean isVectorized() {
+		return VECTOR != null;
+	}
+
+	/**
+	 * Evaluates a dense polynomial at each of the given points, with the Vector API
+	 * if it is available.
+	 *
+	 * @param coeffs Coefficient of degree i at index i
+	 * @param n Number of coefficients
+	 * @param xs Values at which the polynomial is to be evaluated
+	 * @param out Array to hold the value at xs[i] in out[i], at least as long as xs
+	 * @param from First index of xs to evaluate
+	 * @param to One past the last index of xs to evaluate
+	 */
+	static void denseBatch(float[] coeffs, int n, float[] xs, float[] out, int from, int to) {
+		if (VECTOR != null && to - from >= VECTOR_MIN_POINTS) {
+			try {
+				VECTOR.invokeExact(coeffs, n, xs, out, from, to);
+				return;
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		for (int i = from; i < to; i++) {
+			out[i] = (float)dense(coeffs, n, xs[i]);
+		}
+	}
+
+	/**
+	 * Computes x^n by repeated squaring.
+	 *
+	 * @param x Base
+	 * @param n Exponent, at least 0
+	 * @return x^n
+	 */
+	static double pow(double x, int n) {
+		double r = 1;
+		while (n > 0) {
+			if ((n & 1) != 0) {
+				r *= x;
+			}
+			x *= x;
+			n >>>= 1;
+		}
+		return r;
+	}
+
+	/**
+	 * Evaluates a dense polynomial.
+	 *
+	 * @param coeffs Coefficient of degree i at index i
+	 * @param n Number of coefficients
+	 * @param x Value at which the polynomial is to be evaluated
+	 * @return Value of the polynomial at x
+	 */
+	static double dense(float[] coeffs, int n, double x) {
+		double ans = 0;
+		for (int i = n-1; i >= 0; i--) {
+			ans = ans * x + coeffs[i];
+		}
+		return ans;
+	}
+
+	/**
+	 * Evaluates a sparse polynomial.
+	 *
+	 * @param degrees Degrees in ascending order
+	 * @param coeffs Coefficients
+	 * @param n Number of terms
+	 * @param x Value at which the polynomial is to be evaluated
+	 * @return Value of the polynomial at x
+	 */
+	static double sparse(int[] degrees, float[] coeffs, int n, double x) {
+		if (n == 0) {
+			return 0;
+		}
+		double ans = coeffs[n-1];
+		for (int i = n-2; i >= 0; i--) {
+			int gap = degrees[i+1] - degrees[i];
+			ans = (gap == 1 ? ans * x : ans * pow(x, gap)) + coeffs[i];
+		}
+		return degrees[0] == 0 ? ans : ans * pow(x, degrees[0]);
+	}
+}
@@ -0,0 +1,162 @@
+package poly;
+
+/**
+ * This class implements a polynomial that can never change, so one instance can be
+ * shared by any number of threads without locking or copying. It has the same
+ * add, multiply and evaluate operations as {@link Polynomial}, each returning a new
+ * polynomial.
+ * <p>
+ * The terms live in an {@link ArrayPolynomial} held in a final field. Its arrays are
+ * never written after construction and are not reachable from outside the package,
+ * so every thread that can see an instance also sees all its terms (final field
+ * semantics of the Java memory model), however the instance was handed over.
+ *
+ * @author runb-cs112
+ *
+ */
+public final class ImmutablePolynomial {
+
+	/**
+	 * Terms of this polynomial.
+	 */
+	private final ArrayPolynomial terms;
+
+	/**
+	 * Wraps the given terms, which must not be changed afterwards.
+	 *
+	 * @param terms Terms
+	 */
+	ImmutablePolynomial(ArrayPolynomial terms) {
+		this.terms = terms;
+	}
+
+	/**
+	 * Initializes this polynomial to zero.
+	 */
+	public ImmutablePolynomial() {
+		this(new ArrayPolynomial());
+	}
+
+	/**
+	 * Makes an immutable copy of a linked list polynomial.
+	 *
+	 * @param p Polynomial to be copied
+	 * @return Immutable polynomial with the same terms
+	 */
+	public static ImmutablePolynomial of(Polynomial p) {
+		return new ImmutablePolynomial(ArrayPolynomial.from(p));
+	}
+
+	/**
+	 * Makes an immutable polynomial with the terms of an array polynomial. Array
+	 * polynomials never change their terms, so nothing is copied.
+	 *
+	 * @param p Polynomial
+	 * @return Immutable polynomial with the same terms
+	 */
+	public static ImmutablePolynomial of(ArrayPolynomial p) {
+		return new ImmutablePolynomial(p);
+	}
+
+	/**
+	 * Returns the polynomial obtained by adding the given polynomial p
+	 * to this polynomial
+	 *
+	 * @param p Polynomial to be added
+	 * @return A new polynomial which is the sum of this polynomial and p.
+	 */
+	public ImmutablePolynomial add(ImmutablePolynomial p) {
+		return new ImmutablePolynomial(terms.add(p.terms));
+	}
+
+	/**
+	 * Returns the polynomial obtained by multiplying the given polynomial p
+	 * with this polynomial
+	 *
+	 * @param p Polynomial with which this polynomial is to be multiplied
+	 * @return A new polynomial which is the product of this polynomial and p.
+	 */
+	public ImmutablePolynomial multiply(ImmutablePolynomial p) {
+		return new ImmutablePolynomial(terms.multiply(p.terms));
+	}
+
+	/**
+	 * Evaluates this polynomial at the given value of x
+	 *
+	 * @param x Value at which this polynomial is to be evaluated
+	 * @return Value of this polynomial at x
+	 */
+	public float evaluate(float x) {
+		return terms.evaluate(x);
+	}
+
+	/**
+	 * Evaluates this polynomial at each of the given values of x
+	 *
+	 * @param xs Values at which this polynomial is to be evaluated
+	 * @param out Array to hold the value of this polynomial at xs[i] in out[i]
+	 * @throws IllegalArgumentException If out is shorter than xs
+	 */
+	public void evaluate(float[] xs, float[] out) {
+		terms.evaluate(xs, out);
+	}
+
+	/**
+	 * Returns the highest degree in this polynomial.
+	 *
+	 * @return Degree, -1 if this polynomial is zero
+	 */
+	public int degree() {
+		return terms.degree();
+	}
+
+	/**
+	 * Returns the number of terms in this polynomial.
+	 *
+	 * @return Number of non-zero terms
+	 */
+	public int terms() {
+		return terms.terms();
+	}
+
+	/**
+	 * Returns the terms of this polynomial as an array polynomial, without copying.
+	 *
+	 * @return Array polynomial with the same terms
+	 */
+	public ArrayPolynomial toArrayPolynomial() {
+		return terms;
+	}
+
+	/**
+	 * Copies the terms of this polynomial into a new linked list polynomial, which the
+	 * caller is free to change.
+	 *
+	 * @return Linked list polynomial with the same terms
+	 */
+	public Polynomial toPolynomial() {
+		return terms.toPolynomial();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	public boolean equals(Object other) {
+		return other instanceof ImmutablePolynomial &&
+		ProductCache.sameTerms(terms, ((ImmutablePolynomial)other).terms);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#hashCode()
+	 */
+	public int hashCode() {
+		return ProductCache.contentHash(terms);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		return terms.toString();
+	}
+}
@@ -0,0 +1,232 @@
+package poly;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * This class implements a read-only sparse polynomial whose terms stay in a file
+ * mapped by {@link PolynomialFile#map(java.nio.file.Path)}. Nothing is copied when
+ * the file is opened; evaluation and addition read the degree and coefficient
+ * columns straight from the mapped memory, and pages are loaded by the operating
+ * system as they are touched.
+ * <p>
+ * Multiplication needs the terms in arrays for the multiplication engines, so it
+ * copies them first (see {@link #toArrayPolynomial()}).
+ *
+ * @author runb-cs112
+ *
+ */
+public class MappedPolynomial {
+
+	/**
+	 * Mapped degree column, ascending.
+	 */
+	private final IntBuffer degrees;
+
+	/**
+	 * Mapped coefficient column.
+	 */
+	private final FloatBuffer coeffs;
+
+	/**
+	 * Number of terms.
+	 */
+	private final int size;
+
+	/**
+	 * Lowest and highest degree, from the file header.
+	 */
+	private final int minDegree, maxDegree;
+
+	/**
+	 * Wraps the mapped columns of a polynomial file.
+	 *
+	 * @param degrees Degree column
+	 * @param coeffs Coefficient column
+	 * @param size Number of terms
+	 * @param minDegree Lowest degree
+	 * @param maxDegree Highest degree
+	 */
+	MappedPolynomial(IntBuffer degrees, FloatBuffer coeffs, int size, int minDegree, int maxDegree) {
+		this.degrees = degrees;
+		this.coeffs = coeffs;
+		this.size = size;
+		this.minDegree = minDegree;
+		this.maxDegree = maxDegree;
+	}
+
+	/**
+	 * Returns the number of terms in this polynomial.
+	 *
+	 * @return Number of terms
+	 */
+	public int terms() {
+		return size;
+	}
+
+	/**
+	 * Returns the lowest degree in this polynomial.
+	 *
+	 * @return Lowest degree, or 0 if there are no terms
+	 */
+	public int minDegree() {
+		return minDegree;
+	}
+
+	/**
+	 * Returns the highest degree in this polynomial.
+	 *
+	 * @return Highest degree, or -1 if there are no terms
+	 */
+	public int degree() {
+		return maxDegree;
+	}
+
+	/**
+	 * Returns the degree of the i-th term, in ascending order of degree.
+	 *
+	 * @param i Index of the term
+	 * @return Degree of the term
+	 */
+	public int degreeAt(int i) {
+		return degrees.get(i);
+	}
+
+	/**
+	 * Returns the coefficient of the i-th term, in ascending order of degree.
+	 *
+	 * @param i Index of the term
+	 * @return Coefficient of the term
+	 */
+	public float coeffAt(int i) {
+		return coeffs.get(i);
+	}
+
+	/**
+	 * Evaluates this polynomial at the given value of x
+	 *
+	 * @param x Value at which this polynomial is to be evaluated
+	 * @return Value of this polynomial at x
+	 */
+	public float evaluate(float x) {
+		if (size == 0) {
+			return 0;
+		}
+		double ans = coeffs.get(size-1);
+		for (int i = size-2; i >= 0; i--) {
+			ans = ans * Horner.pow(x, degrees.get(i+1) - degrees.get(i)) + coeffs.get(i);
+		}
+		return (float)(ans * Horner.pow(x, degrees.get(0)));
+	}
+
+	/**
+	 * Evaluates this polynomial at each of the given values of x
+	 *
+	 * @param xs Values at which this polynomial is to be evaluated
+	 * @param out Array to hold the value of this polynomial at xs[i] in out[i]
+	 * @throws IllegalArgumentException If out is shorter than xs
+	 */
+	public void evaluate(float[] xs, float[] out) {
+		if (out.length < xs.length) {
+			throw new IllegalArgumentException("Output array too short: " + out.length + " < " + xs.length);
+		}
+		for (int i = 0; i < xs.length; i++) {
+			out[i] = evaluate(xs[i]);
+		}
+	}
+
+	/**
+	 * Returns the polynomial obtained by adding the given polynomial p
+	 * to this polynomial, merging straight from the mapped columns
+	 *
+	 * @param p Polynomial to be added
+	 * @return A new polynomial which is the sum of this polynomial and p.
+	 */
+	public ArrayPolynomial add(ArrayPolynomial p) {
+		ArrayPolynomial b = p.toSparse();
+		int[] d = new int[size + b.size];
+		float[] c = new float[size + b.size];
+		int i = 0, j = 0, k = 0;
+
+		while (i < size || j < b.size) {
+			if (j == b.size || (i < size && degrees.get(i) < b.degrees[j])) {
+				d[k] = degrees.get(i);
+				c[k] = coeffs.get(i++);
+			} else if (i == size || b.degrees[j] < degrees.get(i)) {
+				d[k] = b.degrees[j];
+				c[k] = b.coeffs[j++];
+			} else {
+				d[k] = b.degrees[j];
+				c[k] = coeffs.get(i++) + b.coeffs[j++];
+			}
+			if (c[k] != 0) {
+				k++;
+			}
+		}
+		return new ArrayPolynomial(d, c, k).withBestLayout();
+	}
+
+	/**
+	 * Returns the polynomial obtained by multiplying the given polynomial p
+	 * with this polynomial
+	 *
+	 * @param p Polynomial with which this polynomial is to be multiplied
+	 * @return A new polynomial which is the product of this polynomial and p.
+	 */
+	public ArrayPolynomial multiply(ArrayPolynomial p) {
+		return toArrayPolynomial().multiply(p);
+	}
+
+	/**
+	 * Copies the terms of this polynomial into an array polynomial.
+	 *
+	 * @return Array polynomial with the same terms
+	 */
+	public ArrayPolynomial toArrayPolynomial() {
+		int[] d = new int[size];
+		float[] c = new float[size];
+		degrees.get(0, d);
+		coeffs.get(0, c);
+		return new ArrayPolynomial(d, c, size).withBestLayout();
+	}
+
+	/**
+	 * Copies the terms of this polynomial into a linked list polynomial.
+	 *
+	 * @return Linked list polynomial with the same terms
+	 */
+	public Polynomial toPolynomial() {
+		return toArrayPolynomial().toPolynomial();
+	}
+
+	/**
+	 * Writes this polynomial as text, highest degree first, streaming the terms
+	 * straight from the mapped columns to the destination.
+	 *
+	 * @param out Destination, for instance a Writer or a StringBuilder
+	 * @throws IOException If the destination cannot be written
+	 */
+	public void writeTo(Appendable out) throws IOException {
+		TermWriter writer = new TermWriter(out);
+		for (int i = size-1; i >= 0; i--) {
+			writer.term(coeffs.get(i), degrees.get(i));
+		}
+		writer.finish();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		try {
+			writeTo(sb);
+		} catch (IOException e) {
+			// A StringBuilder never throws.
+			throw new UncheckedIOException(e);
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,480 @@
+package poly;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * This class implements a polynomial whose coefficients are integers modulo a prime p
+ * below 2^31. Unlike the float coefficients of {@link Polynomial}, the arithmetic is
+ * exact, so products of any size come out right and can be done with a
+ * number-theoretic transform.
+ * <p>
+ * Coefficients are kept dense, as residues 0..p-1 in a long array indexed by degree,
+ * with no trailing zeros. The product of two residues is below 2^62, and is reduced
+ * with Barrett's method: one high multiply by a precomputed 2^64/p and at most two
+ * subtractions, instead of a division.
+ * <p>
+ * Multiplication is schoolbook for small polynomials. Larger ones use
+ * {@link NTTMultiplier}: directly when p is one of its primes, otherwise modulo all
+ * three of its primes, after which the exact coefficients of the product (below
+ * 2^86) are rebuilt with the Chinese remainder theorem and reduced modulo p.
+ * Products too long for the transforms the primes support are put together from
+ * products of blocks of {@link #BLOCK_TERMS} terms.
+ * <p>
+ * For exact integer results, compute the same polynomial modulo several primes and
+ * combine the images with {@link #reconstruct(ModularPolynomial...)}. Polynomials are
+ * never changed once built.
+ *
+ * @author runb-cs112
+ *
+ */
+public final class ModularPolynomial {
+
+	/**
+	 * Number of terms of the smaller factor below which multiplication is schoolbook.
+	 */
+	static final int NTT_THRESHOLD = 64;
+
+	/**
+	 * Number of terms in each block of a product too long for one transform. The
+	 * product of two blocks fits in a transform of size 2^23, which all the primes of
+	 * {@link NTTMultiplier} support.
+	 */
+	static final int BLOCK_TERMS = 1 << 22;
+
+	/**
+	 * Prime modulus.
+	 */
+	final long p;
+
+	/**
+	 * floor((2^64 - 1) / p), for Barrett reduction.
+	 */
+	private final long barrett;
+
+	/**
+	 * Coefficient of degree i at index i, each in 0..p-1.
+	 */
+	final long[] coeffs;
+
+	/**
+	 * Number of coefficients, the degree plus one; 0 for the zero polynomial.
+	 */
+	final int length;
+
+	/**
+	 * Wraps the given residues without copying them, dropping trailing zeros.
+	 *
+	 * @param p Prime modulus, already checked
+	 * @param coeffs Residues in 0..p-1
+	 * @param length Number of residues to use
+	 */
+	private ModularPolynomial(long p, long[] coeffs, int length) {
+		while (length > 0 && coeffs[length-1] == 0) {
+			length--;
+		}
+		this.p = p;
+		this.barrett = Long.divideUnsigned(-1L, p);
+		this.coeffs = coeffs;
+		this.length = length;
+	}
+
+	/**
+	 * Builds a polynomial from integer coefficients, reducing each modulo p.
+	 *
+	 * @param p Prime modulus below 2^31
+	 * @param coeffs Coefficient of degree i at index i, any sign
+	 * @return Polynomial with the coefficients modulo p
+	 * @throws IllegalArgumentException If p is not a prime below 2^31
+	 */
+	public static ModularPolynomial of(long p, long... coeffs) {
+		checkModulus(p);
+		long[] c = new long[coeffs.length];
+		for (int i = 0; i < c.length; i++) {
+			c[i] = Math.floorMod(coeffs[i], p);
+		}
+		return new ModularPolynomial(p, c, c.length);
+	}
+
+	/**
+	 * Builds a polynomial from one with integer float coefficients, reducing each
+	 * modulo p.
+	 *
+	 * @param p Prime modulus below 2^31
+	 * @param q Polynomial whose coefficients are all integers
+	 * @return Polynomial with the coefficients of q modulo p
+	 * @throws IllegalArgumentException If p is not a prime below 2^31, or a
+	 * coefficient of q is not an integer
+	 */
+	public static ModularPolynomial of(long p, ArrayPolynomial q) {
+		checkModulus(p);
+		double[] d = q.toDoubles();
+		long[] c = new long[d.length];
+		for (int i = 0; i < c.length; i++) {
+			if (d[i] != Math.rint(d[i]) || Math.abs(d[i]) >= 0x1p63) {
+				throw new IllegalArgumentException("Coefficient of degree " + i + " is not an integer: " + d[i]);
+			}
+			c[i] = Math.floorMod((long)d[i], p);
+		}
+		return new ModularPolynomial(p, c, c.length);
+	}
+
+	/**
+	 * Checks that a modulus is a prime below 2^31.
+	 *
+	 * @param p Modulus
+	 * @throws IllegalArgumentException If it is not
+	 */
+	private static void checkModulus(long p) {
+		if (p < 2 || p > Integer.MAX_VALUE || !BigInteger.valueOf(p).isProbablePrime(30)) {
+			throw new IllegalArgumentException("Modulus must be a prime below 2^31: " + p);
+		}
+	}
+
+	/**
+	 * Returns the modulus of this polynomial.
+	 *
+	 * @return Prime modulus
+	 */
+	public long modulus() {
+		return p;
+	}
+
+	/**
+	 * Returns the degree of this polynomial.
+	 *
+	 * @return Degree, or -1 for the zero polynomial
+	 */
+	public int degree() {
+		return length - 1;
+	}
+
+	/**
+	 * Returns the coefficient of the given degree.
+	 *
+	 * @param degree Degree, at least 0
+	 * @return Coefficient in 0..p-1
+	 */
+	public long coeff(int degree) {
+		return degree < length ? coeffs[degree] : 0;
+	}
+
+	/**
+	 * Reduces x modulo p.
+	 *
+	 * @param x Value in 0..2^63-1
+	 * @return x mod p
+	 */
+	long reduce(long x) {
+		// barrett <= 2^64/p, so q is at most 2 below the true quotient.
+		long q = Math.multiplyHigh(x, barrett);
+		long r = x - q * p;
+		if (r >= p) {
+			r -= p;
+		}
+		if (r >= p) {
+			r -= p;
+		}
+		return r;
+	}
+
+	/**
+	 * Returns the polynomial obtained by adding the given polynomial q
+	 * to this polynomial - DOES NOT change this polynomial
+	 *
+	 * @param q Polynomial to be added, with the same modulus
+	 * @return A new polynomial which is the sum of this polynomial and q.
+	 * @throws IllegalArgumentException If the moduli differ
+	 */
+	public ModularPolynomial add(ModularPolynomial q) {
+		checkSameModulus(q);
+		int n = Math.max(length, q.length);
+		long[] c = new long[n];
+		for (int i = 0; i < n; i++) {
+			long s = coeff(i) + q.coeff(i);
+			c[i] = s >= p ? s - p : s;
+		}
+		return new ModularPolynomial(p, c, n);
+	}
+
+	/**
+	 * Returns the polynomial obtained by multiplying the given polynomial q
+	 * with this polynomial - DOES NOT change this polynomial
+	 *
+	 * @param q Polynomial with which this polynomial is to be multiplied, with the same modulus
+	 * @return A new polynomial which is the product of this polynomial and q.
+	 * @throws IllegalArgumentException If the moduli differ
+	 */
+	public ModularPolynomial multiply(ModularPolynomial q) {
+		checkSameModulus(q);
+		if (length == 0 || q.length == 0) {
+			return new ModularPolynomial(p, new long[0], 0);
+		}
+		if (Math.min(length, q.length) < NTT_THRESHOLD) {
+			return schoolbook(q);
+		}
+		int n = NTTMultiplier.transformSize(length + q.length - 1);
+		for (int i = 0; i < NTTMultiplier.PRIMES.length; i++) {
+			if (NTTMultiplier.PRIMES[i] == p && NTTMultiplier.supports(i, n)) {
+				long[] r = NTTMultiplier.multiply(coeffs, length, q.coeffs, q.length, i);
+				return new ModularPolynomial(p, r, r.length);
+			}
+		}
+		for (int i = 0; i < NTTMultiplier.PRIMES.length; i++) {
+			if (!NTTMultiplier.supports(i, n)) {
+				return blocks(q);
+			}
+		}
+		return threePrimes(q);
+	}
+
+	/**
+	 * Multiplies block by block, for products too long for one transform.
+	 *
+	 * @param q Polynomial with the same modulus, not zero
+	 * @return Product
+	 */
+	private ModularPolynomial blocks(ModularPolynomial q) {
+		long[] c = new long[length + q.length - 1];
+		for (int i = 0; i < length; i += BLOCK_TERMS) {
+			ModularPolynomial a = block(i);
+			for (int j = 0; j < q.length; j += BLOCK_TERMS) {
+				ModularPolynomial r = a.multiply(q.block(j));
+				for (int k = 0; k < r.length; k++) {
+					long s = c[i+j+k] + r.coeffs[k];
+					c[i+j+k] = s >= p ? s - p : s;
+				}
+			}
+		}
+		return new ModularPolynomial(p, c, c.length);
+	}
+
+	/**
+	 * Returns the terms of one block, shifted down to degree 0.
+	 *
+	 * @param start Degree of the first term of the block
+	 * @return Terms of degree start to start+BLOCK_TERMS-1
+	 */
+	private ModularPolynomial block(int start) {
+		int end = Math.min(length, start + BLOCK_TERMS);
+		return new ModularPolynomial(p, Arrays.copyOfRange(coeffs, start, end), end - start);
+	}
+
+	/**
+	 * Multiplies term by term, for small polynomials.
+	 *
+	 * @param q Polynomial with the same modulus, not zero
+	 * @return Product
+	 */
+	private ModularPolynomial schoolbook(ModularPolynomial q) {
+		long[] c = new long[length + q.length - 1];
+		for (int i = 0; i < length; i++) {
+			long a = coeffs[i];
+			if (a == 0) {
+				continue;
+			}
+			for (int j = 0; j < q.length; j++) {
+				c[i+j] = reduce(c[i+j] + a * q.coeffs[j]);
+			}
+		}
+		return new ModularPolynomial(p, c, c.length);
+	}
+
+	/**
+	 * Multiplies modulo each of the primes of {@link NTTMultiplier} and joins the
+	 * results with Garner's form of the Chinese remainder theorem. Each exact product
+	 * coefficient is below min(terms) * p^2 &lt; 2^23 * 2^62, which is less than the
+	 * product of the three primes.
+	 *
+	 * @param q Polynomial with the same modulus, not zero
+	 * @return Product
+	 */
+	private ModularPolynomial threePrimes(ModularPolynomial q) {
+		long[][] r = new long[3][];
+		for (int k = 0; k < 3; k++) {
+			long m = NTTMultiplier.PRIMES[k];
+			r[k] = NTTMultiplier.multiply(residues(coeffs, length, m), length, residues(q.coeffs, q.length, m),
+					q.length, k);
+		}
+
+		// x = r0 + m0*t1 + m0*m1*t2 with t1 in 0..m1-1 and t2 in 0..m2-1.
+		long m0 = NTTMultiplier.PRIMES[0], m1 = NTTMultiplier.PRIMES[1], m2 = NTTMultiplier.PRIMES[2];
+		long inv01 = NTTMultiplier.pow(m0, m1 - 2, m1);
+		long inv012 = NTTMultiplier.pow(m0 % m2 * (m1 % m2) % m2, m2 - 2, m2);
+		long m0p = m0 % p, m01p = reduce(m0p * (m1 % p));
+		long[] c = new long[r[0].length];
+		for (int i = 0; i < c.length; i++) {
+			long x0 = r[0][i];
+			long t1 = (r[1][i] - x0 % m1 + m1) % m1 * inv01 % m1;
+			long x01 = (x0 + m0 % m2 * t1) % m2;
+			long t2 = (r[2][i] - x01 + m2) % m2 * inv012 % m2;
+			c[i] = reduce(reduce(x0 + m0p * t1) + m01p * t2);
+		}
+		return new ModularPolynomial(p, c, c.length);
+	}
+
+	/**
+	 * Reduces residues modulo another prime.
+	 *
+	 * @param a Residues
+	 * @param n Number of residues to reduce
+	 * @param m Prime
+	 * @return a[i] mod m
+	 */
+	private static long[] residues(long[] a, int n, long m) {
+		long[] r = new long[n];
+		for (int i = 0; i < n; i++) {
+			r[i] = a[i] % m;
+		}
+		return r;
+	}
+
+	/**
+	 * Evaluates this polynomial at the given value of x
+	 *
+	 * @param x Value at which this polynomial is to be evaluated, any sign
+	 * @return Value of this polynomial at x, in 0..p-1
+	 */
+	public long evaluate(long x) {
+		long xr = Math.floorMod(x, p);
+		long ans = 0;
+		for (int i = length-1; i >= 0; i--) {
+			ans = reduce(ans * xr + coeffs[i]);
+		}
+		return ans;
+	}
+
+	/**
+	 * Evaluates this polynomial at each of the given values of x
+	 *
+	 * @param xs Values at which this polynomial is to be evaluated
+	 * @param out Array to hold the value of this polynomial at xs[i] in out[i]
+	 * @throws IllegalArgumentException If out is shorter than xs
+	 */
+	public void evaluate(long[] xs, long[] out) {
+		if (out.length < xs.length) {
+			throw new IllegalArgumentException("Output array too short: " + out.length + " < " + xs.length);
+		}
+		for (int i = 0; i < xs.length; i++) {
+			out[i] = evaluate(xs[i]);
+		}
+	}
+
+	/**
+	 * Rebuilds the integer polynomial whose images modulo distinct primes are given,
+	 * with the Chinese remainder theorem. Each coefficient is taken in the range
+	 * -M/2..M/2, where M is the product of the primes, so the result is exact as long
+	 * as every coefficient of the integer polynomial is below M/2 in absolute value.
+	 *
+	 * @param images The same polynomial modulo distinct primes
+	 * @return Integer coefficient of degree i at index i
+	 * @throws IllegalArgumentException If there are no images or two moduli are equal
+	 */
+	public static BigInteger[] reconstruct(ModularPolynomial... images) {
+		if (images.length == 0) {
+			throw new IllegalArgumentException("No images to reconstruct from");
+		}
+		int n = 0;
+		for (int k = 0; k < images.length; k++) {
+			n = Math.max(n, images[k].length);
+			for (int j = 0; j < k; j++) {
+				if (images[j].p == images[k].p) {
+					throw new IllegalArgumentException("Modulus " + images[k].p + " given twice");
+				}
+			}
+		}
+
+		// Garner's method: mixed radix digits of each coefficient, one prime at a time.
+		// d[k][i] = (c_i - value of the first k digits) / (p0...p(k-1)) mod pk.
+		long[][] d = new long[images.length][n];
+		for (int k = 0; k < images.length; k++) {
+			ModularPolynomial img = images[k];
+			long pk = img.p;
+			long[] inv = new long[k];
+			for (int j = 0; j < k; j++) {
+				inv[j] = NTTMultiplier.pow(images[j].p % pk, pk - 2, pk);
+			}
+			for (int i = 0; i < n; i++) {
+				long v = img.coeff(i);
+				for (int j = 0; j < k; j++) {
+					v = img.reduce((v - d[j][i] % pk + pk) % pk * inv[j]);
+				}
+				d[k][i] = v;
+			}
+		}
+
+		BigInteger m = BigInteger.ONE;
+		for (ModularPolynomial img : images) {
+			m = m.multiply(BigInteger.valueOf(img.p));
+		}
+		BigInteger half = m.shiftRight(1);
+		BigInteger[] c = new BigInteger[n];
+		for (int i = 0; i < n; i++) {
+			BigInteger x = BigInteger.ZERO;
+			for (int k = images.length-1; k >= 0; k--) {
+				x = x.multiply(BigInteger.valueOf(images[k].p)).add(BigInteger.valueOf(d[k][i]));
+			}
+			c[i] = x.compareTo(half) > 0 ? x.subtract(m) : x;
+		}
+		return c;
+	}
+
+	/**
+	 * Checks that another polynomial has the same modulus.
+	 *
+	 * @param q Other polynomial
+	 * @throws IllegalArgumentException If the moduli differ
+	 */
+	private void checkSameModulus(ModularPolynomial q) {
+		if (q.p != p) {
+			throw new IllegalArgumentException("Moduli differ: " + p + " and " + q.p);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	public boolean equals(Object o) {
+		if (!(o instanceof ModularPolynomial)) {
+			return false;
+		}
+		ModularPolynomial q = (ModularPolynomial)o;
+		return q.p == p && Arrays.equals(coeffs, 0, length, q.coeffs, 0, q.length);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#hashCode()
+	 */
+	public int hashCode() {
+		int h = Long.hashCode(p);
+		for (int i = 0; i < length; i++) {
+			h = 31 * h + Long.hashCode(coeffs[i]);
+		}
+		return h;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = length-1; i >= 0; i--) {
+			if (coeffs[i] == 0) {
+				continue;
+			}
+			if (sb.length() > 0) {
+				sb.append(" + ");
+			}
+			sb.append(coeffs[i]);
+			if (i == 1) {
+				sb.append('x');
+			} else if (i > 1) {
+				sb.append("x^").append(i);
+			}
+		}
+		if (sb.length() == 0) {
+			sb.append('0');
+		}
+		return sb.append(" (mod ").append(p).append(')').toString();
+	}
+}
@@ -0,0 +1,522 @@
+package poly;
+
+/**
+ * This class implements a sparse polynomial in several variables x0, x1, ...
+ * The exponents of a monomial are packed into a single long key, one bit field per
+ * variable with x0 in the highest field, so that
+ * <ul>
+ *     <li>comparing two monomials in lexicographic order is one long compare, and</li>
+ *     <li>multiplying two monomials is one long addition.</li>
+ * </ul>
+ * Each field has a spare top bit that stays clear as long as the exponent fits, so an
+ * overflowing product is caught with one mask test instead of silently running into
+ * the next variable. With v variables each field is 64/v bits wide (at most 32), so
+ * an exponent can be at most 2^(64/v - 1) - 1 (e.g. 2^31 - 1 for 1 or 2 variables,
+ * 32767 for 4).
+ * <p>
+ * Terms are kept in parallel key and coefficient arrays in ascending key order with no
+ * zero coefficients, as in the sparse layout of {@link ArrayPolynomial}, and
+ * multiplication uses the same heap method as {@link SparseMultiplier}. Polynomials
+ * are never changed once built.
+ *
+ * @author runb-cs112
+ *
+ */
+public class MultivariatePolynomial {
+
+	/**
+	 * Largest number of variables; each field needs a value bit and a spare bit.
+	 */
+	public static final int MAX_VARIABLES = 32;
+
+	/**
+	 * Largest exponent for which evaluation keeps a table of powers of a variable
+	 * instead of raising it by repeated squaring for every term.
+	 */
+	static final int POWER_TABLE_LIMIT = 1 << 12;
+
+	/**
+	 * Number of variables.
+	 */
+	final int vars;
+
+	/**
+	 * Width of each exponent field in bits, spare bit included.
+	 */
+	final int width;
+
+	/**
+	 * Spare bit of every field.
+	 */
+	final long guard;
+
+	/**
+	 * Packed exponents, ascending.
+	 */
+	final long[] keys;
+
+	/**
+	 * Coefficients, none zero.
+	 */
+	final float[] coeffs;
+
+	/**
+	 * Number of terms.
+	 */
+	final int size;
+
+	/**
+	 * Initializes this polynomial to zero in the given number of variables.
+	 *
+	 * @param vars Number of variables, 1 to {@link #MAX_VARIABLES}
+	 * @throws IllegalArgumentException If the number of variables is out of range
+	 */
+	public MultivariatePolynomial(int vars) {
+		this(vars, new long[0], new float[0], 0);
+	}
+
+	/**
+	 * Wraps the given arrays without copying or checking them.
+	 *
+	 * @param vars Number of variables
+	 * @param keys Packed exponents, ascending
+	 * @param coeffs Coefficients
+	 * @param size Number of terms
+	 * @throws IllegalArgumentException If the number of variables is out of range
+	 */
+	MultivariatePolynomial(int vars, long[] keys, float[] coeffs, int size) {
+		if (vars < 1 || vars > MAX_VARIABLES) {
+			throw new IllegalArgumentException("Number of variables must be 1 to " + MAX_VARIABLES + ", not " + vars);
+		}
+		this.vars = vars;
+		this.width = Math.min(64 / vars, 32);
+		long g = 0;
+		for (int v = 0; v < vars; v++) {
+			g |= 1L << ((vars-1-v) * width + width - 1);
+		}
+		this.guard = g;
+		this.keys = keys;
+		this.coeffs = coeffs;
+		this.size = size;
+	}
+
+	/**
+	 * Builds a polynomial from a list of terms, in any order. Terms with equal
+	 * exponents are combined and zero terms are dropped.
+	 *
+	 * @param vars Number of variables, 1 to {@link #MAX_VARIABLES}
+	 * @param coeffs Coefficient of each term
+	 * @param exponents Exponents of each term, one per variable
+	 * @return Polynomial with the given terms
+	 * @throws IllegalArgumentException If the number of variables is out of range, the
+	 * arrays do not match, or an exponent is negative or too large
+	 */
+	public static MultivariatePolynomial of(int vars, float[] coeffs, int[][] exponents) {
+		if (coeffs.length != exponents.length) {
+			throw new IllegalArgumentException(coeffs.length + " coefficients but " + exponents.length + " exponent lists");
+		}
+		MultivariatePolynomial zero = new MultivariatePolynomial(vars);
+		int n = coeffs.length;
+		long[] k = new long[n];
+		float[] c = coeffs.clone();
+		for (int i = 0; i < n; i++) {
+			k[i] = zero.pack(exponents[i]);
+		}
+		sortByKey(k, c, n);
+
+		// Combine equal keys and drop zeros, as ArrayPolynomial.sparse does.
+		int m = 0;
+		for (int i = 0; i < n; i++) {
+			if (m > 0 && k[m-1] == k[i]) {
+				c[m-1] += c[i];
+				if (c[m-1] == 0) {
+					m--;
+				}
+			} else if (c[i] != 0) {
+				k[m] = k[i];
+				c[m] = c[i];
+				m++;
+			}
+		}
+		return new MultivariatePolynomial(vars, k, c, m);
+	}
+
+	/**
+	 * Packs a list of exponents into a key.
+	 *
+	 * @param exponents Exponent of each variable
+	 * @return Key
+	 * @throws IllegalArgumentException If the list has the wrong length, or an exponent
+	 * is negative or too large
+	 */
+	long pack(int[] exponents) {
+		if (exponents.length != vars) {
+			throw new IllegalArgumentException("Expected " + vars + " exponents, got " + exponents.length);
+		}
+		long max = maxExponent();
+		long key = 0;
+		for (int v = 0; v < vars; v++) {
+			if (exponents[v] < 0 || exponents[v] > max) {
+				throw new IllegalArgumentException("Exponent " + exponents[v] + " of x" + v + " is not between 0 and " + max);
+			}
+			key = (key << width) | exponents[v];
+		}
+		return key;
+	}
+
+	/**
+	 * Returns the exponent of a variable in a key.
+	 *
+	 * @param key Key
+	 * @param v Variable
+	 * @return Exponent of v
+	 */
+	private int unpack(long key, int v) {
+		return (int)((key >>> ((vars-1-v) * width)) & ((1L << width) - 1));
+	}
+
+	/**
+	 * Returns the largest exponent a variable can have.
+	 *
+	 * @return Largest exponent
+	 */
+	public long maxExponent() {
+		return (1L << (width-1)) - 1;
+	}
+
+	/**
+	 * Returns the number of variables.
+	 *
+	 * @return Number of variables
+	 */
+	public int variables() {
+		return vars;
+	}
+
+	/**
+	 * Returns the number of terms in this polynomial.
+	 *
+	 * @return Number of terms
+	 */
+	public int terms() {
+		return size;
+	}
+
+	/**
+	 * Returns the coefficient of the i-th term, in ascending lexicographic order of
+	 * exponents.
+	 *
+	 * @param i Index of the term
+	 * @return Coefficient of the term
+	 */
+	public float coeffAt(int i) {
+		return coeffs[i];
+	}
+
+	/**
+	 * Returns the exponent of a variable in the i-th term, in ascending lexicographic
+	 * order of exponents.
+	 *
+	 * @param i Index of the term
+	 * @param v Variable, 0 to variables()-1
+	 * @return Exponent of v in the term
+	 */
+	public int exponentAt(int i, int v) {
+		return unpack(keys[i], v);
+	}
+
+	/**
+	 * Returns the polynomial obtained by adding the given polynomial p
+	 * to this polynomial - DOES NOT change this polynomial
+	 *
+	 * @param p Polynomial to be added
+	 * @return A new polynomial which is the sum of this polynomial and p.
+	 * @throws IllegalArgumentException If p has a different number of variables
+	 */
+	public MultivariatePolynomial add(MultivariatePolynomial p) {
+		checkVariables(p);
+		long[] k = new long[size + p.size];
+		float[] c = new float[size + p.size];
+		int i = 0, j = 0, m = 0;
+
+		while (i < size || j < p.size) {
+			if (j == p.size || (i < size && keys[i] < p.keys[j])) {
+				k[m] = keys[i];
+				c[m] = coeffs[i++];
+			} else if (i == size || p.keys[j] < keys[i]) {
+				k[m] = p.keys[j];
+				c[m] = p.coeffs[j++];
+			} else {
+				k[m] = keys[i];
+				c[m] = coeffs[i++] + p.coeffs[j++];
+			}
+			if (c[m] != 0) {
+				m++;
+			}
+		}
+		return new MultivariatePolynomial(vars, k, c, m);
+	}
+
+	/**
+	 * Returns the polynomial obtained by multiplying the given polynomial p
+	 * with this polynomial - DOES NOT change this polynomial
+	 *
+	 * @param p Polynomial with which this polynomial is to be multiplied
+	 * @return A new polynomial which is the product of this polynomial and p.
+	 * @throws IllegalArgumentException If p has a different number of variables
+	 * @throws ArithmeticException If an exponent of the product is too large
+	 */
+	public MultivariatePolynomial multiply(MultivariatePolynomial p) {
+		checkVariables(p);
+		MultivariatePolynomial a = this, b = p;
+
+		// Use the operand with fewer terms for the rows so the heap stays small.
+		if (a.size > b.size) {
+			MultivariatePolynomial t = a; a = b; b = t;
+		}
+		int n = a.size, m = b.size;
+		if (n == 0) {
+			return new MultivariatePolynomial(vars);
+		}
+
+		// Heap of row cursors: row i of a, column col[i] of b, keyed on the product monomial.
+		int[] heapRow = new int[n];
+		long[] heapKey = new long[n];
+		int[] col = new int[n];
+		int heapSize = 0;
+
+		int cap = Math.max(16, n + m);
+		long[] k = new long[cap];
+		float[] c = new float[cap];
+		int len = 0;
+
+		heapSize = push(heapRow, heapKey, heapSize, 0, product(a.keys[0], b.keys[0]));
+
+		while (heapSize > 0) {
+			int i = heapRow[0];
+			long key = heapKey[0];
+			float coeff = a.coeffs[i] * b.coeffs[col[i]];
+
+			if (len > 0 && k[len-1] == key) {
+				c[len-1] += coeff;
+			} else {
+				if (len > 0 && c[len-1] == 0) {
+					len--;
+				}
+				if (len == cap) {
+					cap = cap << 1;
+					k = java.util.Arrays.copyOf(k, cap);
+					c = java.util.Arrays.copyOf(c, cap);
+				}
+				k[len] = key;
+				c[len] = coeff;
+				len++;
+			}
+
+			if (col[i] == 0 && i+1 < n) {
+				heapSize = push(heapRow, heapKey, heapSize, i+1, product(a.keys[i+1], b.keys[0]));
+			}
+
+			if (++col[i] < m) {
+				heapKey[0] = product(a.keys[i], b.keys[col[i]]);
+			} else {
+				heapSize--;
+				heapRow[0] = heapRow[heapSize];
+				heapKey[0] = heapKey[heapSize];
+			}
+			siftDown(heapRow, heapKey, heapSize, 0);
+		}
+		if (len > 0 && c[len-1] == 0) {
+			len--;
+		}
+		return new MultivariatePolynomial(vars, k, c, len);
+	}
+
+	/**
+	 * Multiplies two monomials.
+	 *
+	 * @param a Key of the first monomial
+	 * @param b Key of the second monomial
+	 * @return Key of the product
+	 * @throws ArithmeticException If an exponent of the product is too large
+	 */
+	private long product(long a, long b) {
+		long key = a + b;
+		if ((key & guard) != 0) {
+			throw new ArithmeticException("Exponent of product exceeds " + maxExponent());
+		}
+		return key;
+	}
+
+	/**
+	 * Evaluates this polynomial at the given point
+	 *
+	 * @param point Value of each variable
+	 * @return Value of this polynomial at the point
+	 * @throws IllegalArgumentException If the point has the wrong number of values
+	 */
+	public float evaluate(float[] point) {
+		if (point.length != vars) {
+			throw new IllegalArgumentException("Expected " + vars + " values, got " + point.length);
+		}
+
+		// Powers of each variable up to its highest exponent, when that is small enough.
+		int[] maxExp = new int[vars];
+		for (int i = 0; i < size; i++) {
+			for (int v = 0; v < vars; v++) {
+				maxExp[v] = Math.max(maxExp[v], unpack(keys[i], v));
+			}
+		}
+		double[][] powers = new double[vars][];
+		for (int v = 0; v < vars; v++) {
+			if (maxExp[v] <= POWER_TABLE_LIMIT) {
+				powers[v] = new double[maxExp[v] + 1];
+				powers[v][0] = 1;
+				for (int e = 1; e <= maxExp[v]; e++) {
+					powers[v][e] = powers[v][e-1] * point[v];
+				}
+			}
+		}
+
+		double ans = 0;
+		for (int i = 0; i < size; i++) {
+			double t = coeffs[i];
+			for (int v = 0; v < vars; v++) {
+				int e = unpack(keys[i], v);
+				t *= powers[v] != null ? powers[v][e] : Horner.pow(point[v], e);
+			}
+			ans += t;
+		}
+		return (float)ans;
+	}
+
+	/**
+	 * Checks that p is in the same variables as this polynomial.
+	 *
+	 * @param p Other polynomial
+	 * @throws IllegalArgumentException If p has a different number of variables
+	 */
+	private void checkVariables(MultivariatePolynomial p) {
+		if (p.vars != vars) {
+			throw new IllegalArgumentException("Polynomials in " + vars + " and " + p.vars + " variables");
+		}
+	}
+
+	/**
+	 * Sorts terms by key, stably, with a bottom-up merge sort.
+	 *
+	 * @param keys Keys
+	 * @param coeffs Coefficients, moved along with the keys
+	 * @param n Number of terms
+	 */
+	static void sortByKey(long[] keys, float[] coeffs, int n) {
+		long[] k = keys, kt = new long[n];
+		float[] c = coeffs, ct = new float[n];
+		for (int run = 1; run < n; run <<= 1) {
+			for (int lo = 0; lo < n; lo += 2*run) {
+				int mid = Math.min(lo + run, n), hi = Math.min(lo + 2*run, n);
+				int i = lo, j = mid, m = lo;
+				while (i < mid || j < hi) {
+					if (j == hi || (i < mid && k[i] <= k[j])) {
+						kt[m] = k[i];
+						ct[m++] = c[i++];
+					} else {
+						kt[m] = k[j];
+						ct[m++] = c[j++];
+					}
+				}
+			}
+			long[] ks = k; k = kt; kt = ks;
+			float[] cs = c; c = ct; ct = cs;
+		}
+		if (k != keys) {
+			System.arraycopy(k, 0, keys, 0, n);
+			System.arraycopy(c, 0, coeffs, 0, n);
+		}
+	}
+
+	/**
+	 * Adds a cursor to the heap.
+	 *
+	 * @param heapRow Rows of the cursors in the heap
+	 * @param heapKey Monomials of the cursors in the heap
+	 * @param heapSize Number of cursors in the heap
+	 * @param row Row of the new cursor
+	 * @param key Monomial of the new cursor
+	 * @return New number of cursors in the heap
+	 */
+	private static int push(int[] heapRow, long[] heapKey, int heapSize, int row, long key) {
+		int pos = heapSize;
+		while (pos > 0) {
+			int parent = (pos-1) >>> 1;
+			if (heapKey[parent] <= key) {
+				break;
+			}
+			heapRow[pos] = heapRow[parent];
+			heapKey[pos] = heapKey[parent];
+			pos = parent;
+		}
+		heapRow[pos] = row;
+		heapKey[pos] = key;
+		return heapSize + 1;
+	}
+
+	/**
+	 * Moves the cursor at the given position down to its place in the heap.
+	 *
+	 * @param heapRow Rows of the cursors in the heap
+	 * @param heapKey Monomials of the cursors in the heap
+	 * @param heapSize Number of cursors in the heap
+	 * @param pos Position of the cursor to be moved
+	 */
+	private static void siftDown(int[] heapRow, long[] heapKey, int heapSize, int pos) {
+		if (pos >= heapSize) {
+			return;
+		}
+		int row = heapRow[pos];
+		long key = heapKey[pos];
+		while (true) {
+			int child = 2*pos + 1;
+			if (child >= heapSize) {
+				break;
+			}
+			if (child+1 < heapSize && heapKey[child+1] < heapKey[child]) {
+				child++;
+			}
+			if (key <= heapKey[child]) {
+				break;
+			}
+			heapRow[pos] = heapRow[child];
+			heapKey[pos] = heapKey[child];
+			pos = child;
+		}
+		heapRow[pos] = row;
+		heapKey[pos] = key;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		if (size == 0) {
+			return "0";
+		}
+		StringBuilder sb = new StringBuilder();
+		for (int i = size-1; i >= 0; i--) {
+			if (i < size-1) {
+				sb.append(" + ");
+			}
+			sb.append(coeffs[i]);
+			for (int v = 0; v < vars; v++) {
+				int e = unpack(keys[i], v);
+				if (e > 0) {
+					sb.append('x').append(v);
+					if (e > 1) {
+						sb.append('^').append(e);
+					}
+				}
+			}
+		}
+		return sb.toString();
+	}
+}
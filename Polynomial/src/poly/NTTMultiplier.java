@@ -0,0 +1,268 @@
+package poly;
+
+/**
+ * This class multiplies polynomials with a number-theoretic transform: the same
+ * butterfly structure as the FFT, but over the integers modulo a prime of the form
+ * c*2^k + 1, so there is no rounding error at all.
+ * <p>
+ * Coefficients modulo one of the {@link #PRIMES} are multiplied directly. Integer
+ * coefficients are multiplied exactly by working modulo one prime, or two primes
+ * joined with the Chinese remainder theorem when the product coefficients can be
+ * larger than one prime allows.
+ *
+ * @author runb-cs112
+ *
+ */
+class NTTMultiplier {
+
+	/**
+	 * Primes that support transforms of size up to 2^23 or more. Each is below 2^30,
+	 * so the product of two residues fits in a long.
+	 */
+	static final long[] PRIMES = { 998244353L, 469762049L, 167772161L };
+
+	/**
+	 * Primitive roots of the primes in {@link #PRIMES}.
+	 */
+	static final long[] ROOTS = { 3, 3, 3 };
+
+	/**
+	 * Multiplies two polynomials with coefficients modulo PRIMES[prime].
+	 *
+	 * @param a Coefficients of the first polynomial, in 0..p-1
+	 * @param na Number of coefficients of a to use
+	 * @param b Coefficients of the second polynomial, in 0..p-1
+	 * @param nb Number of coefficients of b to use
+	 * @param prime Index of the prime in {@link #PRIMES}
+	 * @return Coefficients of the product modulo the prime, na+nb-1 of them
+	 */
+	static long[] multiply(long[] a, int na, long[] b, int nb, int prime) {
+		if (na == 0 || nb == 0) {
+			return new long[0];
+		}
+		long p = PRIMES[prime];
+		int len = na + nb - 1;
+		int n = transformSize(len);
+		if (!supports(prime, n)) {
+			throw new IllegalArgumentException("Transform of size " + n + " not supported modulo " + p);
+		}
+
+		long[] fa = new long[n];
+		long[] fb = new long[n];
+		System.arraycopy(a, 0, fa, 0, na);
+		System.arraycopy(b, 0, fb, 0, nb);
+
+		transform(fa, n, p, ROOTS[prime], false);
+		transform(fb, n, p, ROOTS[prime], false);
+		for (int i = 0; i < n; i++) {
+			fa[i] = fa[i] * fb[i] % p;
+		}
+		transform(fa, n, p, ROOTS[prime], true);
+
+		long inv = pow(n, p - 2, p);
+		long[] r = new long[len];
+		for (int i = 0; i < len; i++) {
+			r[i] = fa[i] * inv % p;
+		}
+		return r;
+	}
+
+	/**
+	 * Returns the transform size needed for a product.
+	 *
+	 * @param len Number of coefficients of the product
+	 * @return Smallest power of 2 that is at least len
+	 */
+	static int transformSize(int len) {
+		int n = Integer.highestOneBit(len);
+		return n < len ? n << 1 : n;
+	}
+
+	/**
+	 * Tells whether a prime supports a transform of the given size, i.e. whether the
+	 * size divides p-1.
+	 *
+	 * @param prime Index of the prime in {@link #PRIMES}
+	 * @param n Transform size, a power of 2
+	 * @return True if the transform can be done modulo the prime
+	 */
+	static boolean supports(int prime, int n) {
+		return Long.numberOfTrailingZeros(PRIMES[prime] - 1) >= Integer.numberOfTrailingZeros(n);
+	}
+
+	/**
+	 * Multiplies two polynomials with integer coefficients exactly.
+	 *
+	 * @param a Coefficients of the first polynomial, all integers
+	 * @param na Number of coefficients of a to use
+	 * @param b Coefficients of the second polynomial, all integers
+	 * @param nb Number of coefficients of b to use
+	 * @return Coefficients of the product, na+nb-1 of them, or null if they may not
+	 *         fit in the range the primes can represent, or the product is too long
+	 *         for a transform modulo the primes
+	 */
+	static double[] multiplyExact(double[] a, int na, double[] b, int nb) {
+		if (na == 0 || nb == 0) {
+			return new double[0];
+		}
+		double bound = maxAbs(a, na) * maxAbs(b, nb) * Math.min(na, nb);
+
+		// The largest two primes that support the transform size; the smaller primes
+		// allow longer transforms.
+		int n = transformSize(na + nb - 1);
+		int first = -1, second = -1;
+		for (int i = 0; i < PRIMES.length && second < 0; i++) {
+			if (supports(i, n)) {
+				if (first < 0) {
+					first = i;
+				} else {
+					second = i;
+				}
+			}
+		}
+		if (first < 0) {
+			return null;
+		}
+
+		double p0 = PRIMES[first];
+		if (bound < p0 / 2) {
+			long[] r = multiply(residues(a, na, first), na, residues(b, nb, first), nb, first);
+			double[] ans = new double[r.length];
+			for (int i = 0; i < r.length; i++) {
+				ans[i] = r[i] > PRIMES[first] / 2 ? r[i] - PRIMES[first] : r[i];
+			}
+			return ans;
+		}
+		if (second < 0 || bound >= p0 * PRIMES[second] / 2 * 0.99) {
+			return null;
+		}
+
+		long[] r0 = multiply(residues(a, na, first), na, residues(b, nb, first), nb, first);
+		long[] r1 = multiply(residues(a, na, second), na, residues(b, nb, second), nb, second);
+
+		// x = r0 + p0*t with t = (r1 - r0) / p0 mod p1, which gives x in 0..p0*p1-1.
+		long m0 = PRIMES[first], m1 = PRIMES[second];
+		long m = m0 * m1;
+		long inv = pow(m0 % m1, m1 - 2, m1);
+		double[] ans = new double[r0.length];
+		for (int i = 0; i < r0.length; i++) {
+			long t = ((r1[i] - r0[i] % m1 + m1) % m1) * inv % m1;
+			long x = r0[i] + m0 * t;
+			ans[i] = x > m / 2 ? x - m : x;
+		}
+		return ans;
+	}
+
+	/**
+	 * Tells whether all the given coefficients are integers that fit in an int.
+	 *
+	 * @param a Coefficients
+	 * @param n Number of coefficients to check
+	 * @return True if every coefficient is integral
+	 */
+	static boolean isIntegral(double[] a, int n) {
+		for (int i = 0; i < n; i++) {
+			if (a[i] != Math.rint(a[i]) || Math.abs(a[i]) > Integer.MAX_VALUE) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Reduces integer coefficients modulo PRIMES[prime].
+	 *
+	 * @param a Integer coefficients
+	 * @param n Number of coefficients to reduce
+	 * @param prime Index of the prime in {@link #PRIMES}
+	 * @return Residues in 0..p-1
+	 */
+	private static long[] residues(double[] a, int n, int prime) {
+		long p = PRIMES[prime];
+		long[] r = new long[n];
+		for (int i = 0; i < n; i++) {
+			long v = (long)a[i] % p;
+			r[i] = v < 0 ? v + p : v;
+		}
+		return r;
+	}
+
+	/**
+	 * Returns the largest absolute value among the given coefficients.
+	 *
+	 * @param a Coefficients
+	 * @param n Number of coefficients to check
+	 * @return Largest absolute value
+	 */
+	private static double maxAbs(double[] a, int n) {
+		double max = 0;
+		for (int i = 0; i < n; i++) {
+			max = Math.max(max, Math.abs(a[i]));
+		}
+		return max;
+	}
+
+	/**
+	 * Runs an in-place iterative radix-2 transform modulo p.
+	 *
+	 * @param a Values modulo p
+	 * @param n Transform size, a power of 2 dividing p-1
+	 * @param p Prime modulus
+	 * @param g Primitive root modulo p
+	 * @param inverse True for the inverse transform (without the 1/n scaling)
+	 */
+	static void transform(long[] a, int n, long p, long g, boolean inverse) {
+		for (int i = 1, j = 0; i < n; i++) {
+			int bit = n >> 1;
+			for (; (j & bit) != 0; bit >>= 1) {
+				j ^= bit;
+			}
+			j ^= bit;
+			if (i < j) {
+				long t = a[i]; a[i] = a[j]; a[j] = t;
+			}
+		}
+
+		long[] w = new long[n/2 + 1];
+		for (int len = 2; len <= n; len <<= 1) {
+			int half = len >> 1;
+			long root = pow(g, (p - 1) / len, p);
+			if (inverse) {
+				root = pow(root, p - 2, p);
+			}
+			w[0] = 1;
+			for (int k = 1; k < half; k++) {
+				w[k] = w[k-1] * root % p;
+			}
+			for (int i = 0; i < n; i += len) {
+				for (int k = 0; k < half; k++) {
+					long u = a[i+k];
+					long v = a[i+k+half] * w[k] % p;
+					a[i+k] = u + v < p ? u + v : u + v - p;
+					a[i+k+half] = u - v >= 0 ? u - v : u - v + p;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Computes b^e mod p by repeated squaring.
+	 *
+	 * @param b Base
+	 * @param e Exponent, at least 0
+	 * @param p Modulus below 2^31
+	 * @return b^e mod p
+	 */
+	static long pow(long b, long e, long p) {
+		long r = 1;
+		b %= p;
+		while (e > 0) {
+			if ((e & 1) != 0) {
+				r = r * b % p;
+			}
+			b = b * b % p;
+			e >>= 1;
+		}
+		return r;
+	}
+}
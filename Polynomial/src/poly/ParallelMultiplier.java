@@ -0,0 +1,201 @@
+package poly;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * This class multiplies large polynomials on several threads. The operand with more
+ * terms is split into chunks, each chunk is multiplied with the other operand in its
+ * own fork-join task (with the usual choice of sparse, Karatsuba or transform
+ * method), and the partial products are combined pairwise with a degree-ordered
+ * merge as the tasks join.
+ * <p>
+ * Chunks are sized so that no single task builds a partial product of more than
+ * {@link #getMaxTaskTerms()} terms, which keeps the memory held by the running tasks
+ * proportional to the number of threads instead of the size of the full product.
+ * When the other operand is so large that even one term of the first times all of it
+ * would go over the limit, it is split into slices as well, each slice is multiplied
+ * with the chunks of the first operand, and the results are merged the same way.
+ *
+ * @author runb-cs112
+ *
+ */
+public class ParallelMultiplier {
+
+	/**
+	 * Default limit on the number of terms in the partial product of one task.
+	 */
+	public static final int DEFAULT_MAX_TASK_TERMS = 1 << 20;
+
+	/**
+	 * Number of chunks made per thread of the pool, so that threads that finish
+	 * early can steal work from the others.
+	 */
+	static final int CHUNKS_PER_THREAD = 4;
+
+	/**
+	 * Pool that runs the tasks.
+	 */
+	private final ForkJoinPool pool;
+
+	/**
+	 * Limit on the number of terms in the partial product of one task.
+	 */
+	private final int maxTaskTerms;
+
+	/**
+	 * Initializes a multiplier that runs in the given pool with the default task size.
+	 *
+	 * @param pool Pool to run the tasks in
+	 */
+	public ParallelMultiplier(ForkJoinPool pool) {
+		this(pool, DEFAULT_MAX_TASK_TERMS);
+	}
+
+	/**
+	 * Initializes a multiplier that runs in the given pool.
+	 *
+	 * @param pool Pool to run the tasks in
+	 * @param maxTaskTerms Limit on the number of terms in the partial product of one task
+	 * @throws IllegalArgumentException If maxTaskTerms is not positive
+	 */
+	public ParallelMultiplier(ForkJoinPool pool, int maxTaskTerms) {
+		if (maxTaskTerms <= 0) {
+			throw new IllegalArgumentException("maxTaskTerms must be positive: " + maxTaskTerms);
+		}
+		this.pool = pool;
+		this.maxTaskTerms = maxTaskTerms;
+	}
+
+	/**
+	 * Returns the limit on the number of terms in the partial product of one task.
+	 *
+	 * @return Terms per task
+	 */
+	public int getMaxTaskTerms() {
+		return maxTaskTerms;
+	}
+
+	/**
+	 * Multiplies two polynomials.
+	 *
+	 * @param a First polynomial
+	 * @param b Second polynomial
+	 * @return Product of a and b
+	 */
+	public Polynomial multiply(Polynomial a, Polynomial b) {
+		return multiply(ArrayPolynomial.from(a), ArrayPolynomial.from(b)).toPolynomial();
+	}
+
+	/**
+	 * Multiplies two polynomials.
+	 *
+	 * @param a First polynomial
+	 * @param b Second polynomial
+	 * @return Product of a and b
+	 */
+	public ArrayPolynomial multiply(ArrayPolynomial a, ArrayPolynomial b) {
+		// Split the operand with more terms.
+		int aTerms = a.terms(), bTerms = b.terms();
+		if (aTerms < bTerms) {
+			ArrayPolynomial t = a; a = b; b = t;
+			bTerms = aTerms;
+		}
+		if (b.size == 0) {
+			return new ArrayPolynomial();
+		}
+
+		// A chunk of a times a slice of b gives at most chunk*terms(slice) sparse terms,
+		// or chunk+size(slice)-1 dense coefficients. b is only sliced if all of it does
+		// not fit with a single term of a.
+		int slice;
+		long fit;
+		if (a.isDense() && b.isDense()) {
+			slice = b.size < maxTaskTerms ? b.size : (maxTaskTerms + 1) / 2;
+			fit = slice == b.size ? maxTaskTerms - (long)b.size : maxTaskTerms + 1L - slice;
+		} else {
+			slice = bTerms <= maxTaskTerms ? b.size : maxTaskTerms;
+			fit = slice == b.size ? maxTaskTerms / bTerms : 1;
+		}
+		long spread = (a.size + (long)CHUNKS_PER_THREAD * pool.getParallelism() - 1)
+				/ ((long)CHUNKS_PER_THREAD * pool.getParallelism());
+		int chunk = (int)Math.max(1, Math.min(fit, spread));
+
+		if (slice < b.size) {
+			return pool.invoke(new SliceTask(a, b, 0, b.size, slice, chunk))
+					.shift(a.degreeAt(0) + b.degreeAt(0)).withBestLayout();
+		}
+		if (chunk >= a.size) {
+			return a.multiply(b);
+		}
+		return pool.invoke(new ChunkTask(a, b, 0, a.size, chunk)).shift(a.degreeAt(0)).withBestLayout();
+	}
+
+	/**
+	 * Task that multiplies a range of the terms (or coefficients) of one operand with
+	 * all of the other operand. The product is relative to the degree of the first
+	 * term in the range, i.e. it still has to be multiplied by x^degreeAt(lo).
+	 */
+	private static class ChunkTask extends RecursiveTask<ArrayPolynomial> {
+
+		private static final long serialVersionUID = 1L;
+
+		final ArrayPolynomial a, b;
+		final int lo, hi, chunk;
+
+		ChunkTask(ArrayPolynomial a, ArrayPolynomial b, int lo, int hi, int chunk) {
+			this.a = a;
+			this.b = b;
+			this.lo = lo;
+			this.hi = hi;
+			this.chunk = chunk;
+		}
+
+		protected ArrayPolynomial compute() {
+			if (hi - lo <= chunk) {
+				return a.slice(lo, hi).multiply(b);
+			}
+
+			int mid = (lo + hi) >>> 1;
+			ChunkTask left = new ChunkTask(a, b, lo, mid, chunk);
+			left.fork();
+			ArrayPolynomial right = new ChunkTask(a, b, mid, hi, chunk).compute();
+			return left.join().addShifted(right, a.degreeAt(mid) - a.degreeAt(lo));
+		}
+	}
+
+	/**
+	 * Task that multiplies all of one operand with a range of the terms (or
+	 * coefficients) of the other, one slice of the range at a time, each with chunked
+	 * tasks. The product is relative to the degree of the first term of each operand,
+	 * i.e. it still has to be multiplied by x^(a.degreeAt(0) + b.degreeAt(lo)).
+	 */
+	private static class SliceTask extends RecursiveTask<ArrayPolynomial> {
+
+		private static final long serialVersionUID = 1L;
+
+		final ArrayPolynomial a, b;
+		final int lo, hi, slice, chunk;
+
+		SliceTask(ArrayPolynomial a, ArrayPolynomial b, int lo, int hi, int slice, int chunk) {
+			this.a = a;
+			this.b = b;
+			this.lo = lo;
+			this.hi = hi;
+			this.slice = slice;
+			this.chunk = chunk;
+		}
+
+		protected ArrayPolynomial compute() {
+			if (hi - lo <= slice) {
+				return new ChunkTask(a, b.slice(lo, hi), 0, a.size, chunk).compute();
+			}
+
+			int mid = (lo + hi) >>> 1;
+			SliceTask left = new SliceTask(a, b, lo, mid, slice, chunk);
+			left.fork();
+			ArrayPolynomial right = new SliceTask(a, b, mid, hi, slice, chunk).compute();
+			return left.join().addShifted(right, b.degreeAt(mid) - b.degreeAt(lo));
+		}
+	}
+}
@@ -0,0 +1,393 @@
+package poly;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * This class benchmarks the polynomial operations on generated polynomials, in the
+ * manner of JMH but with no dependencies, so it runs from the plain source tree:
+ * <pre>
+ *     java poly.Polybench [-degrees 64,1024,16384] [-shapes dense,sparse,mixed]
+ *         [-benchmarks add,multiply,...] [-warmup ms] [-time ms] [-iterations n]
+ *         [-format json|csv] [-o results-file]
+ * </pre>
+ * For every degree and shape two random polynomials are made (with a fixed seed, so
+ * runs are comparable):
+ * <ul>
+ *     <li><b>dense</b>: every degree up to the given one has a term,</li>
+ *     <li><b>sparse</b>: one degree in 16 has a term,</li>
+ *     <li><b>mixed</b>: dense up to half the degree, sparse above it.</li>
+ * </ul>
+ * Each benchmark is warmed up, then run for a number of timed iterations. For every
+ * iteration the time per operation is recorded, and like JMH's {@code -prof gc} the
+ * bytes allocated by the benchmark thread and the collections run are counted. The
+ * results are printed as a table and, with {@code -o}, written as JSON (one object
+ * per line) or CSV so they can be compared across runs. Bytes per operation are -1
+ * on JVMs that do not count allocation per thread.
+ *
+ * @author runb-cs112
+ *
+ */
+public class Polybench {
+
+	/**
+	 * Benchmarks that can be run.
+	 */
+	static final String[] BENCHMARKS = {
+		"add", "multiply", "evaluate", "evaluateBatch", "loadText", "loadTextMapped", "loadBinary"
+	};
+
+	/**
+	 * Number of points in an evaluateBatch operation.
+	 */
+	static final int BATCH_POINTS = 1024;
+
+	/**
+	 * Results are stored here so the JIT cannot drop the work that made them.
+	 */
+	static volatile Object sink;
+
+	/**
+	 * One operation to be timed.
+	 */
+	interface Operation {
+		Object run() throws IOException;
+	}
+
+	/**
+	 * Measurements of one benchmark.
+	 */
+	static class Result {
+		String benchmark, shape;
+		int degree, terms;
+		long ops;
+		double nsPerOp, nsPerOpStdev, bytesPerOp, gcCount, gcMillis;
+	}
+
+	/**
+	 * Settings, with their defaults.
+	 */
+	int[] degrees = { 64, 1024, 16384 };
+	String[] shapes = { "dense", "sparse", "mixed" };
+	String[] benchmarks = BENCHMARKS;
+	long warmupMillis = 1000, timeMillis = 1000;
+	int iterations = 5;
+	String format = "json";
+	String output;
+
+	/**
+	 * Command line options, all of which take a value.
+	 */
+	static final List<String> OPTIONS = Arrays.asList("-degrees", "-shapes", "-benchmarks", "-warmup", "-time",
+			"-iterations", "-format", "-o");
+
+	public static void main(String[] args) throws IOException {
+		Polybench bench = new Polybench();
+		for (int i = 0; i < args.length; i++) {
+			String option = args[i];
+			if (!OPTIONS.contains(option)) {
+				usage("Unknown option " + option);
+			}
+			if (i+1 == args.length) {
+				usage("Missing value for " + option);
+			}
+			String value = args[++i];
+			switch (option) {
+			case "-degrees": bench.degrees = Arrays.stream(value.split(",")).mapToInt(Integer::parseInt).toArray(); break;
+			case "-shapes": bench.shapes = value.split(","); break;
+			case "-benchmarks": bench.benchmarks = value.split(","); break;
+			case "-warmup": bench.warmupMillis = Long.parseLong(value); break;
+			case "-time": bench.timeMillis = Long.parseLong(value); break;
+			case "-iterations": bench.iterations = Integer.parseInt(value); break;
+			case "-format": bench.format = value; break;
+			case "-o": bench.output = value; break;
+			}
+		}
+		List<Result> results = bench.run();
+		if (bench.output != null) {
+			try (Writer w = Files.newBufferedWriter(Paths.get(bench.output), StandardCharsets.UTF_8)) {
+				write(results, bench.format, w);
+			}
+		}
+	}
+
+	/**
+	 * Prints a problem with the command line and the usage, and exits.
+	 *
+	 * @param problem What is wrong
+	 */
+	private static void usage(String problem) {
+		System.err.println(problem);
+		System.err.println("Usage: java poly.Polybench [-degrees d,...] [-shapes s,...] [-benchmarks b,...]"
+				+ " [-warmup ms] [-time ms] [-iterations n] [-format json|csv] [-o file]");
+		System.exit(2);
+	}
+
+	/**
+	 * Runs all selected benchmarks on all selected degrees and shapes.
+	 *
+	 * @return Results, in the order run
+	 * @throws IOException If the temporary files for the load benchmarks cannot be written
+	 */
+	List<Result> run() throws IOException {
+		List<Result> results = new ArrayList<Result>();
+		System.out.printf("%-14s %-7s %8s %8s %14s %12s %14s %8s%n",
+				"benchmark", "shape", "degree", "terms", "ns/op", "+-", "bytes/op", "gc");
+		for (int degree : degrees) {
+			for (String shape : shapes) {
+				Random random = new Random(degree * 31L + shape.hashCode());
+				ArrayPolynomial a = generate(shape, degree, random), b = generate(shape, degree, random);
+				List<Path> files = new ArrayList<Path>();
+				Map<String, Operation> ops = operations(a, b, random, files);
+				for (String name : benchmarks) {
+					Operation op = ops.get(name);
+					if (op == null) {
+						throw new IllegalArgumentException("Unknown benchmark " + name + ", expected one of "
+								+ String.join(",", BENCHMARKS));
+					}
+					Result r = measure(op);
+					r.benchmark = name;
+					r.shape = shape;
+					r.degree = degree;
+					r.terms = a.terms();
+					results.add(r);
+					System.out.printf("%-14s %-7s %8d %8d %14.1f %12.1f %14.1f %8.2f%n",
+							name, shape, degree, r.terms, r.nsPerOp, r.nsPerOpStdev, r.bytesPerOp, r.gcCount);
+				}
+				for (Path p : files) {
+					Files.deleteIfExists(p);
+				}
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Makes a random polynomial of the given shape and degree, with coefficients
+	 * between -1 and 1.
+	 *
+	 * @param shape dense, sparse or mixed
+	 * @param degree Degree
+	 * @param random Random numbers
+	 * @return Polynomial
+	 */
+	static ArrayPolynomial generate(String shape, int degree, Random random) {
+		if (!shape.equals("dense") && !shape.equals("sparse") && !shape.equals("mixed")) {
+			throw new IllegalArgumentException("Unknown shape " + shape + ", expected dense, sparse or mixed");
+		}
+		int[] d = new int[degree + 1];
+		float[] c = new float[degree + 1];
+		int n = 0;
+		for (int i = 0; i <= degree; i++) {
+			boolean dense = shape.equals("dense") || (shape.equals("mixed") && i <= degree / 2);
+			if (i == degree || dense || random.nextInt(16) == 0) {
+				d[n] = i;
+				c[n++] = random.nextFloat() * 2 - 1;
+			}
+		}
+		return ArrayPolynomial.sparse(d, c, n);
+	}
+
+	/**
+	 * Sets up the operations of every benchmark on two polynomials.
+	 *
+	 * @param a First polynomial
+	 * @param b Second polynomial
+	 * @param random Random numbers
+	 * @param files List to which the temporary files made for the load benchmarks are added
+	 * @return Operations by benchmark name
+	 * @throws IOException If the temporary files cannot be written
+	 */
+	static Map<String, Operation> operations(ArrayPolynomial a, ArrayPolynomial b, Random random, List<Path> files)
+			throws IOException {
+		Polynomial pa = a.toPolynomial(), pb = b.toPolynomial();
+		float[] xs = new float[BATCH_POINTS], out = new float[BATCH_POINTS];
+		for (int i = 0; i < xs.length; i++) {
+			xs[i] = random.nextFloat() * 2 - 1;
+		}
+
+		Path text = Files.createTempFile("polybench", ".txt");
+		files.add(text);
+		try (Writer w = Files.newBufferedWriter(text, StandardCharsets.US_ASCII)) {
+			for (int i = a.size-1; i >= 0; i--) {
+				if (a.coeffs[i] != 0) {
+					w.write(a.coeffs[i] + " " + a.degreeAt(i) + "\n");
+				}
+			}
+		}
+		Path binary = Files.createTempFile("polybench", ".poly");
+		files.add(binary);
+		PolynomialFile.write(a, binary);
+
+		Map<String, Operation> ops = new LinkedHashMap<String, Operation>();
+		ops.put("add", () -> pa.add(pb));
+		ops.put("multiply", () -> pa.multiply(pb));
+		ops.put("evaluate", () -> pa.evaluate(0.999f));
+		ops.put("evaluateBatch", () -> {
+			pa.evaluate(xs, out);
+			return out;
+		});
+		ops.put("loadText", () -> {
+			try (BufferedReader br = new BufferedReader(new FileReader(text.toFile()))) {
+				return new Polynomial(br);
+			}
+		});
+		ops.put("loadTextMapped", () -> PolynomialReader.readPolynomial(text));
+		ops.put("loadBinary", () -> PolynomialFile.map(binary).toPolynomial());
+		return ops;
+	}
+
+	/**
+	 * Warms up and times one operation.
+	 *
+	 * @param op Operation
+	 * @return Measurements, without the names filled in
+	 * @throws IOException If the operation throws
+	 */
+	Result measure(Operation op) throws IOException {
+		runFor(op, warmupMillis * 1000000);
+
+		double[] nsPerOp = new double[iterations];
+		long totalOps = 0, bytes = 0, gcCount = 0, gcMillis = 0;
+		boolean bytesKnown = true;
+		for (int it = 0; it < iterations; it++) {
+			long bytesBefore = allocatedBytes(), gcBefore = gcCount(), gcTimeBefore = gcMillis();
+			long start = System.nanoTime();
+			long ops = runFor(op, timeMillis * 1000000);
+			long elapsed = System.nanoTime() - start;
+			long bytesAfter = allocatedBytes();
+			if (bytesBefore == UNKNOWN || bytesAfter == UNKNOWN) {
+				bytesKnown = false;
+			} else {
+				bytes += bytesAfter - bytesBefore;
+			}
+			gcCount += gcCount() - gcBefore;
+			gcMillis += gcMillis() - gcTimeBefore;
+			nsPerOp[it] = (double)elapsed / ops;
+			totalOps += ops;
+		}
+
+		Result r = new Result();
+		r.ops = totalOps;
+		r.nsPerOp = Arrays.stream(nsPerOp).average().orElse(0);
+		double var = 0;
+		for (double t : nsPerOp) {
+			var += (t - r.nsPerOp) * (t - r.nsPerOp);
+		}
+		r.nsPerOpStdev = iterations > 1 ? Math.sqrt(var / (iterations - 1)) : 0;
+		r.bytesPerOp = bytesKnown ? (double)bytes / totalOps : -1;
+		r.gcCount = gcCount;
+		r.gcMillis = gcMillis;
+		return r;
+	}
+
+	/**
+	 * Runs an operation over and over for at least the given time, and at least once.
+	 *
+	 * @param op Operation
+	 * @param nanos Time to run for
+	 * @return Number of times the operation ran
+	 * @throws IOException If the operation throws
+	 */
+	static long runFor(Operation op, long nanos) throws IOException {
+		long end = System.nanoTime() + nanos;
+		long ops = 0;
+		do {
+			sink = op.run();
+			ops++;
+		} while (System.nanoTime() < end);
+		return ops;
+	}
+
+	/**
+	 * Value of {@link #allocatedBytes()} when the JVM cannot tell.
+	 */
+	static final long UNKNOWN = -1;
+
+	/**
+	 * Returns the number of bytes allocated so far by the current thread.
+	 *
+	 * @return Bytes allocated, or {@link #UNKNOWN} if the JVM cannot tell
+	 */
+	static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			long bytes = ((com.sun.management.ThreadMXBean)bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+			// The bean also answers -1 when measuring is switched off.
+			return bytes < 0 ? UNKNOWN : bytes;
+		}
+		return UNKNOWN;
+	}
+
+	/**
+	 * Returns the number of collections run so far by all collectors.
+	 *
+	 * @return Number of collections
+	 */
+	static long gcCount() {
+		long n = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			n += Math.max(0, gc.getCollectionCount());
+		}
+		return n;
+	}
+
+	/**
+	 * Returns the time spent so far in all collectors.
+	 *
+	 * @return Collection time in milliseconds
+	 */
+	static long gcMillis() {
+		long n = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			n += Math.max(0, gc.getCollectionTime());
+		}
+		return n;
+	}
+
+	/**
+	 * Writes results in a machine-readable format.
+	 *
+	 * @param results Results
+	 * @param format json (one object per line) or csv
+	 * @param w Destination
+	 */
+	static void write(List<Result> results, String format, Writer w) {
+		PrintWriter out = new PrintWriter(new BufferedWriter(w));
+		boolean csv = format.equals("csv");
+		if (!csv && !format.equals("json")) {
+			throw new IllegalArgumentException("Unknown format " + format + ", expected json or csv");
+		}
+		if (csv) {
+			out.println("benchmark,shape,degree,terms,ops,nsPerOp,nsPerOpStdev,bytesPerOp,gcCount,gcMillis");
+		}
+		for (Result r : results) {
+			if (csv) {
+				out.printf(java.util.Locale.ROOT, "%s,%s,%d,%d,%d,%.3f,%.3f,%.1f,%.0f,%.0f%n", r.benchmark, r.shape,
+						r.degree, r.terms, r.ops, r.nsPerOp, r.nsPerOpStdev, r.bytesPerOp, r.gcCount, r.gcMillis);
+			} else {
+				out.printf(java.util.Locale.ROOT, "{\"benchmark\":\"%s\",\"shape\":\"%s\",\"degree\":%d,\"terms\":%d,"
+						+ "\"ops\":%d,\"nsPerOp\":%.3f,\"nsPerOpStdev\":%.3f,\"bytesPerOp\":%.1f,\"gcCount\":%.0f,"
+						+ "\"gcMillis\":%.0f}%n", r.benchmark, r.shape, r.degree, r.terms, r.ops, r.nsPerOp,
+						r.nsPerOpStdev, r.bytesPerOp, r.gcCount, r.gcMillis);
+			}
+		}
+		out.flush();
+	}
+}
@@ -2,6 +2,7 @@ package poly;
 
 import java.io.*;
 import java.util.StringTokenizer;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * This class implements a term of a polynomial.
@@ -137,6 +138,8 @@ public class Polynomial {
 		StringTokenizer tokenizer;
 		float coeff;
 		int degree;
+		long start = PolynomialMetrics.start();
+		int terms = 0;
 		
 		poly = null;
 		
@@ -145,7 +148,11 @@ public class Polynomial {
 			coeff = Float.parseFloat(tokenizer.nextToken());
 			degree = Integer.parseInt(tokenizer.nextToken());
 			poly = new Node(coeff, degree, poly);
+			terms++;
 		}
+		
+		PolynomialMetrics.allocated(terms);
+		PolynomialMetrics.stop(PolynomialMetrics.Operation.PARSE, start, terms);
 	}
 	
 	
@@ -158,43 +165,84 @@ public class Polynomial {
 	 */
 	public Polynomial add(Polynomial p) {
 		
-		// Create a new linked list w/ blank node to start off.
+		// Both lists are in ascending order of degree, so one merge pass over them is enough.
+		long start = PolynomialMetrics.start();
+		int read = 0, made = 0;
 		Polynomial ans = new Polynomial();
-		ans.poly = new Node (0, 0, null);
+		Node last = null;
 		
-		// Renaming nodes, then create a new node to input the result to.
+		// Renaming nodes for clarity.
 		Node curr = this.poly;
 		Node addPoly = p.poly;
-		Node term;
-		
-		//Put stuff into the first node, and add it to the new linked list.
-		while (curr != null){
-			term = new Node(curr.term.coeff, curr.term.degree, null);
-			ans.addNode(term);
-			curr = curr.next;
-		}
 		
-		// Do the same for the other poly list we're trying to add.
-		while (addPoly != null){
-			term = new Node(addPoly.term.coeff, addPoly.term.degree, null);
-			ans.addNode(term);
-			addPoly = addPoly.next;
+		while (curr != null || addPoly != null) {
+			float coeff;
+			int degree;
+			read++;
+			
+			// Take the lower degree term first, or the sum of both if the degrees match.
+			if (addPoly == null || (curr != null && curr.term.degree < addPoly.term.degree)) {
+				coeff = curr.term.coeff;
+				degree = curr.term.degree;
+				curr = curr.next;
+			} else if (curr == null || addPoly.term.degree < curr.term.degree) {
+				coeff = addPoly.term.coeff;
+				degree = addPoly.term.degree;
+				addPoly = addPoly.next;
+			} else {
+				coeff = curr.term.coeff + addPoly.term.coeff;
+				degree = curr.term.degree;
+				curr = curr.next;
+				addPoly = addPoly.next;
+				read++;
+			}
+			
+			// Terms that cancel out are left out of the sum.
+			if (coeff == 0) {
+				continue;
+			}
+			
+			// Append to the tail so the result stays in ascending order.
+			Node term = new Node(coeff, degree, null);
+			if (last == null) {
+				ans.poly = term;
+			} else {
+				last.next = term;
+			}
+			last = term;
+			made++;
 		}
 		
+		PolynomialMetrics.allocated(made);
+		PolynomialMetrics.stop(PolynomialMetrics.Operation.ADD, start, read);
 		return ans;
 	}
 	
 	/** This method was created to take in nodes from other methods. This method was created to just add nodes together
 	 * 	of the same degree or sort them in order when they are received.  **/
 	public void addNode(Node n){
+		long start = PolynomialMetrics.start();
+		int walked = insert(n);
+		PolynomialMetrics.traversed(walked);
+		PolynomialMetrics.stop(PolynomialMetrics.Operation.ADD_NODE, start, 1);
+	}
+	
+	/**
+	 * Puts a node into its place in the list, for addNode.
+	 * 
+	 * @param n Node to be added
+	 * @return Number of list nodes walked to find the place
+	 */
+	private int insert(Node n){
 	
 		Node ptr = this.poly;	//Use a pointer to see the linked list.
+		int walked = 1;
 		
 		// Exception: If the given node has a higher degree than the very first node of the linked list
 		if (n.term.degree < ptr.term.degree){
 			n.next = ptr;
 			this.poly = n;
-			return;
+			return walked;
 		}
 		
 		//Go through the list in attempt to find a matching node with the same degree.
@@ -203,25 +251,27 @@ public class Polynomial {
 			//If you have two of the same degree, add them.
 			if (ptr.term.degree == n.term.degree){
 				ptr.term.coeff += n.term.coeff;
-				return;
+				return walked;
 			}
 
 			//If none are found, put it last.
 			else if (ptr.next == null){
 				ptr.next = n;
-				return;
+				return walked;
 			}
 			
 			//If the node given has a higher degree than the answer poly
 			else if (ptr.next.term.degree > n.term.degree) {
 				n.next = ptr.next;
 				ptr.next = n;
-				return;
+				return walked;
 			}
 			
 			ptr = ptr.next;
+			walked++;
 		}
 		
+		return walked;
 	}
 	
 	/**
@@ -232,34 +282,128 @@ public class Polynomial {
 	 * @return A new polynomial which is the product of this polynomial and p.
 	 */
 	public Polynomial multiply(Polynomial p) {
-
-		// Create a new linked list
-		Polynomial ans = new Polynomial();
-		ans.poly = new Node (0, 0, null);
-		
-		
-		// Renaming for clarity.
-		Node curr = this.poly;
 		
-		// Declaring Nodes for clarity
-		Node multPoly;
-		Node term;
-		
-		while (curr != null){
-			multPoly = p.poly; //Resets the pointer to the beginning to run through the second while loop again.
-			
-			//This while loop does FOIL for the polynomials, put this into a new node and call the addNode func
-			while (multPoly != null) {
-				term = new Node (curr.term.coeff * multPoly.term.coeff, curr.term.degree + multPoly.term.degree, null);
-				ans.addNode(term);
-				
-				multPoly = multPoly.next; //Do this for every single term.
-			}
-			
-			curr = curr.next; //Repeat again for second term in the original polynomial.
+		// The product is worked out on array copies of both lists, which gives the terms
+		// in degree order without inserting each partial product with addNode.
+		long start = PolynomialMetrics.start();
+		ArrayPolynomial a = ArrayPolynomial.from(this), b = ArrayPolynomial.from(p);
+		ArrayPolynomial product = a.multiply(b);
+		if (start != PolynomialMetrics.OFF) {
+			PolynomialMetrics.allocated(product.terms());
+			PolynomialMetrics.stop(PolynomialMetrics.Operation.MULTIPLY, start, a.terms() + b.terms());
 		}
-		
-		return ans;
+		return product.toPolynomial();
+	}
+	
+	/**
+	 * Returns the polynomial obtained by multiplying the given polynomial p
+	 * with this polynomial, splitting the work over the threads of the given pool
+	 * - DOES NOT change this polynomial
+	 * 
+	 * @param p Polynomial with which this polynomial is to be multiplied
+	 * @param pool Pool to run the multiplication in
+	 * @return A new polynomial which is the product of this polynomial and p.
+	 */
+	public Polynomial multiply(Polynomial p, ForkJoinPool pool) {
+		return new ParallelMultiplier(pool).multiply(this, p);
+	}
+	
+	/**
+	 * Returns the polynomial obtained by multiplying the given polynomial p
+	 * with this polynomial, looking the product up in the given cache first and
+	 * keeping it there - DOES NOT change this polynomial
+	 * 
+	 * @param p Polynomial with which this polynomial is to be multiplied
+	 * @param cache Cache of products
+	 * @return A new polynomial which is the product of this polynomial and p.
+	 */
+	public Polynomial multiply(Polynomial p, ProductCache cache) {
+		return cache.multiply(this, p);
+	}
+	
+	/**
+	 * Returns the quotient of this polynomial divided by the given polynomial p
+	 * - DOES NOT change this polynomial
+	 * 
+	 * @param p Polynomial by which this polynomial is to be divided
+	 * @return A new polynomial q such that this = q*p + r with deg r &lt; deg p
+	 * @throws ArithmeticException If p is zero
+	 */
+	public Polynomial divide(Polynomial p) {
+		return ArrayPolynomial.from(this).divide(ArrayPolynomial.from(p)).toPolynomial();
+	}
+	
+	/**
+	 * Returns the remainder of this polynomial divided by the given polynomial p
+	 * - DOES NOT change this polynomial
+	 * 
+	 * @param p Polynomial by which this polynomial is to be divided
+	 * @return A new polynomial r such that this = q*p + r with deg r &lt; deg p
+	 * @throws ArithmeticException If p is zero
+	 */
+	public Polynomial remainder(Polynomial p) {
+		return ArrayPolynomial.from(this).remainder(ArrayPolynomial.from(p)).toPolynomial();
+	}
+	
+	/**
+	 * Returns the greatest common divisor of this polynomial and the given polynomial p,
+	 * scaled to have leading coefficient 1 - DOES NOT change this polynomial
+	 * 
+	 * @param p Other polynomial
+	 * @return A new polynomial which is the monic gcd, or zero if both are zero
+	 */
+	public Polynomial gcd(Polynomial p) {
+		return ArrayPolynomial.from(this).gcd(ArrayPolynomial.from(p)).toPolynomial();
+	}
+	
+	/**
+	 * Returns the polynomial obtained by substituting the given polynomial q for x
+	 * in this polynomial, i.e. this(q(x)) - DOES NOT change this polynomial
+	 * 
+	 * @param q Polynomial to be substituted for x
+	 * @return A new polynomial which is the composition of this polynomial and q.
+	 */
+	public Polynomial compose(Polynomial q) {
+		return ArrayPolynomial.from(this).compose(ArrayPolynomial.from(q)).toPolynomial();
+	}
+	
+	/**
+	 * Returns this polynomial raised to the given power, by repeated squaring
+	 * - DOES NOT change this polynomial
+	 * 
+	 * @param k Exponent, 0 or more
+	 * @return A new polynomial which is this polynomial to the power k.
+	 * @throws IllegalArgumentException If k is negative
+	 */
+	public Polynomial pow(int k) {
+		return ArrayPolynomial.from(this).pow(k).toPolynomial();
+	}
+	
+	/**
+	 * Returns this polynomial raised to the given power with all terms above the given
+	 * degree left out, which are also left out of every intermediate product
+	 * - DOES NOT change this polynomial
+	 * 
+	 * @param k Exponent, 0 or more
+	 * @param maxDegree Highest degree kept
+	 * @return A new polynomial which is this polynomial to the power k, truncated.
+	 * @throws IllegalArgumentException If k or maxDegree is negative
+	 */
+	public Polynomial pow(int k, int maxDegree) {
+		return ArrayPolynomial.from(this).pow(k, maxDegree).toPolynomial();
+	}
+	
+	/**
+	 * Returns this polynomial raised to the given power, looking the result up in the
+	 * given cache first and keeping it there - DOES NOT change this polynomial
+	 * 
+	 * @param k Exponent, 0 or more
+	 * @param cache Cache of products
+	 * @return A new polynomial which is this polynomial to the power k.
+	 * @throws IllegalArgumentException If k is negative
+	 */
+	public Polynomial pow(int k, ProductCache cache) {
+		return cache.pow(this, k);
 	}
 	
 	/**
@@ -270,44 +414,127 @@ public class Polynomial {
 	 */
 	public float evaluate(float x) {
 		
-		//Create a float to keep track of the current evaluation.
-		float ans = 0;
+		// Keep track of the evaluation and of x raised to the degree of the current node.
+		long start = PolynomialMetrics.start();
+		double ans = 0;
+		double power = 1;
+		int degree = 0;
+		int terms = 0;
 		
-		//We're going to need the node.
-		Node func = this.poly;
+		// The list is in ascending order of degree, so the power only needs to be
+		// raised by the gap to the next degree, by repeated squaring.
+		for (Node func = this.poly; func != null; func = func.next) {
+			power *= Horner.pow(x, func.term.degree - degree);
+			degree = func.term.degree;
+			ans += func.term.coeff * power;
+			terms++;
+		}
 		
-		//Go through the whole linked list until the last pointer.
-		//find your float^degree and then multiply by coefficient.
-		while (func != null){
-			float constant = func.term.coeff;	//Grab the coefficient of the node
-			float exponent = func.term.degree;	//Grab the exponent
-			
-			//Computations
-			float total = constant * (float)(Math.pow(x, exponent));
-			ans += total;
-			
-			func = func.next;					//Go to next node.
+		PolynomialMetrics.stop(PolynomialMetrics.Operation.EVALUATE, start, terms);
+		return (float)ans;
+	}
+	
+	/**
+	 * Evaluates this polynomial at each of the given values of x. The terms are copied
+	 * into arrays once, and every point is then evaluated with Horner's scheme.
+	 * 
+	 * @param xs Values at which this polynomial is to be evaluated
+	 * @param out Array to hold the value of this polynomial at xs[i] in out[i]
+	 * @throws IllegalArgumentException If out is shorter than xs
+	 */
+	public void evaluate(float[] xs, float[] out) {
+		long start = PolynomialMetrics.start();
+		ArrayPolynomial a = ArrayPolynomial.from(this);
+		a.evaluate(xs, out);
+		if (start != PolynomialMetrics.OFF) {
+			PolynomialMetrics.stop(PolynomialMetrics.Operation.EVALUATE_BATCH, start, (long)a.terms() * xs.length);
 		}
+	}
+	
+	/**
+	 * Compiles this polynomial into an evaluator with its terms baked in as constants,
+	 * for polynomials that are evaluated very many times. Later changes to this
+	 * polynomial do not affect the evaluator.
+	 * 
+	 * @return Evaluator for this polynomial
+	 */
+	public CompiledPolynomial compile() {
+		return CompiledPolynomial.compile(ArrayPolynomial.from(this));
+	}
+	
+	/**
+	 * Writes this polynomial as text, highest degree first, in the same format as
+	 * {@link #toString()}. The terms are streamed to the destination, so the text of a
+	 * huge polynomial never has to be held in memory as a whole.
+	 * 
+	 * @param out Destination, for instance a Writer or a StringBuilder
+	 * @throws IOException If the destination cannot be written
+	 */
+	public void writeTo(Appendable out) throws IOException {
 		
-		return ans;
+		// The list is in ascending order of degree, so copy it into arrays to walk
+		// it backwards.
+		int n = size();
+		float[] coeffs = new float[n];
+		int[] degrees = new int[n];
+		copyTerms(degrees, coeffs);
+		
+		TermWriter writer = new TermWriter(out);
+		for (int i = n-1; i >= 0; i--) {
+			writer.term(coeffs[i], degrees[i]);
+		}
+		writer.finish();
+	}
+	
+	/**
+	 * Returns the number of nodes in the list. With copyTerms and prepend, this lets
+	 * the other classes of this package work with the list without naming Node.
+	 * 
+	 * @return Number of nodes
+	 */
+	int size() {
+		int n = 0;
+		for (Node current = poly; current != null; current = current.next) {
+			n++;
+		}
+		return n;
+	}
+	
+	/**
+	 * Copies the terms of the list into arrays, in list order.
+	 * 
+	 * @param degrees Array to hold the degree of node i at index i, at least size() long
+	 * @param coeffs Array to hold the coefficient of node i at index i, at least size() long
+	 */
+	void copyTerms(int[] degrees, float[] coeffs) {
+		int i = 0;
+		for (Node current = poly; current != null; current = current.next, i++) {
+			degrees[i] = current.term.degree;
+			coeffs[i] = current.term.coeff;
+		}
+	}
+	
+	/**
+	 * Puts a new term in front of the list.
+	 * 
+	 * @param coeff Coefficient of the term
+	 * @param degree Degree of the term
+	 */
+	void prepend(float coeff, int degree) {
+		poly = new Node(coeff, degree, poly);
 	}
 	
 	/* (non-Javadoc)
 	 * @see java.lang.Object#toString()
 	 */
 	public String toString() {
-		String retval;
-		
-		if (poly == null) {
-			return "0";
-		} else {
-			retval = poly.term.toString();
-			for (Node current = poly.next ;
-			current != null ;
-			current = current.next) {
-				retval = current.term.toString() + " + " + retval;
-			}
-			return retval;
+		StringBuilder sb = new StringBuilder();
+		try {
+			writeTo(sb);
+		} catch (IOException e) {
+			// A StringBuilder never throws.
+			throw new UncheckedIOException(e);
 		}
+		return sb.toString();
 	}
 }
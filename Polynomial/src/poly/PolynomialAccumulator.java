@@ -0,0 +1,253 @@
+package poly;
+
+import java.util.Arrays;
+
+/**
+ * This class accumulates a sum of polynomials in place. The running sum is kept as
+ * double precision coefficients indexed by degree in one buffer that grows as
+ * needed, so adding to it creates no new polynomial; an immutable polynomial is made
+ * only when {@link #toArrayPolynomial()} or {@link #toPolynomial()} is called.
+ * <p>
+ * Products of small operands are added straight into the buffer term by term.
+ * Larger products go through {@link ArrayPolynomial#multiply(ArrayPolynomial)} first,
+ * so they still get the fast multiplication engines.
+ * <p>
+ * The buffer takes memory in proportion to the highest degree seen, not the number
+ * of terms, so this is meant for sums of reasonably dense polynomials.
+ *
+ * @author runb-cs112
+ *
+ */
+public class PolynomialAccumulator {
+
+	/**
+	 * Coefficient of degree i at index i.
+	 */
+	private double[] sums;
+
+	/**
+	 * One more than the highest degree added so far.
+	 */
+	private int length;
+
+	/**
+	 * Initializes an accumulator to zero.
+	 */
+	public PolynomialAccumulator() {
+		this(16);
+	}
+
+	/**
+	 * Initializes an accumulator to zero, with room for the given number of
+	 * coefficients before the buffer has to grow.
+	 *
+	 * @param capacity Initial number of coefficients
+	 */
+	public PolynomialAccumulator(int capacity) {
+		sums = new double[Math.max(1, capacity)];
+	}
+
+	/**
+	 * Adds a polynomial to the sum.
+	 *
+	 * @param p Polynomial to be added
+	 * @return This accumulator
+	 */
+	public PolynomialAccumulator addInPlace(Polynomial p) {
+		return addScaled(1, 0, p);
+	}
+
+	/**
+	 * Adds a polynomial to the sum.
+	 *
+	 * @param p Polynomial to be added
+	 * @return This accumulator
+	 */
+	public PolynomialAccumulator addInPlace(ArrayPolynomial p) {
+		return addScaled(1, 0, p);
+	}
+
+	/**
+	 * Adds coeff * x^shift * p to the sum.
+	 *
+	 * @param coeff Factor for every coefficient of p
+	 * @param shift Amount added to every degree of p
+	 * @param p Polynomial to be added
+	 * @return This accumulator
+	 * @throws IllegalArgumentException If a shifted degree would be negative
+	 */
+	public PolynomialAccumulator addScaled(float coeff, int shift, Polynomial p) {
+		int n = p.size();
+		int[] degrees = new int[n];
+		float[] coeffs = new float[n];
+		p.copyTerms(degrees, coeffs);
+		int max = -1;
+		for (int i = 0; i < n; i++) {
+			max = Math.max(max, degrees[i]);
+		}
+		if (max < 0) {
+			return this;
+		}
+		for (int i = 0; i < n; i++) {
+			checkDegree(degrees[i] + shift);
+		}
+		ensure(max + shift + 1);
+		for (int i = 0; i < n; i++) {
+			sums[degrees[i] + shift] += (double)coeff * coeffs[i];
+		}
+		return this;
+	}
+
+	/**
+	 * Adds coeff * x^shift * p to the sum.
+	 *
+	 * @param coeff Factor for every coefficient of p
+	 * @param shift Amount added to every degree of p
+	 * @param p Polynomial to be added
+	 * @return This accumulator
+	 * @throws IllegalArgumentException If a shifted degree would be negative
+	 */
+	public PolynomialAccumulator addScaled(float coeff, int shift, ArrayPolynomial p) {
+		if (p.size == 0) {
+			return this;
+		}
+		if (p.isDense()) {
+			// The low coefficients of a dense layout can be zero; only the lowest
+			// nonzero term has to land on a degree of 0 or more.
+			int low = 0;
+			while (low < p.size && p.coeffs[low] == 0) {
+				low++;
+			}
+			if (low == p.size) {
+				return this;
+			}
+			checkDegree(low + shift);
+			ensure(p.degree() + shift + 1);
+			for (int i = low; i < p.size; i++) {
+				sums[i + shift] += (double)coeff * p.coeffs[i];
+			}
+		} else {
+			checkDegree(p.degreeAt(0) + shift);
+			ensure(p.degree() + shift + 1);
+			for (int i = 0; i < p.size; i++) {
+				sums[p.degrees[i] + shift] += (double)coeff * p.coeffs[i];
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Adds the product a * b to the sum.
+	 *
+	 * @param a First factor
+	 * @param b Second factor
+	 * @return This accumulator
+	 */
+	public PolynomialAccumulator fusedMultiplyAdd(Polynomial a, Polynomial b) {
+		return fusedMultiplyAdd(ArrayPolynomial.from(a), ArrayPolynomial.from(b));
+	}
+
+	/**
+	 * Adds the product a * b to the sum.
+	 *
+	 * @param a First factor
+	 * @param b Second factor
+	 * @return This accumulator
+	 */
+	public PolynomialAccumulator fusedMultiplyAdd(ArrayPolynomial a, ArrayPolynomial b) {
+		if (a.size == 0 || b.size == 0) {
+			return this;
+		}
+		if (Math.min(a.terms(), b.terms()) >= DenseMultiplier.KARATSUBA_THRESHOLD) {
+			return addScaled(1, 0, a.multiply(b));
+		}
+
+		// Few enough terms on one side that the plain double loop is the fastest way.
+		ensure(a.degree() + b.degree() + 1);
+		for (int i = 0; i < a.size; i++) {
+			double ai = a.coeffs[i];
+			if (ai == 0) {
+				continue;
+			}
+			int di = a.degreeAt(i);
+			for (int j = 0; j < b.size; j++) {
+				sums[di + b.degreeAt(j)] += ai * b.coeffs[j];
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Sets the sum back to zero, keeping the buffer.
+	 *
+	 * @return This accumulator
+	 */
+	public PolynomialAccumulator clear() {
+		Arrays.fill(sums, 0, length, 0);
+		length = 0;
+		return this;
+	}
+
+	/**
+	 * Returns the highest degree with a nonzero coefficient in the sum.
+	 *
+	 * @return Degree of the sum, -1 if it is zero
+	 */
+	public int degree() {
+		int d = length - 1;
+		while (d >= 0 && (float)sums[d] == 0) {
+			d--;
+		}
+		return d;
+	}
+
+	/**
+	 * Makes an immutable polynomial equal to the current sum. The accumulator can
+	 * still be added to afterwards.
+	 *
+	 * @return Sum, with coefficients rounded to float
+	 */
+	public ArrayPolynomial toArrayPolynomial() {
+		return ArrayPolynomial.dense(sums, length);
+	}
+
+	/**
+	 * Makes a linked list polynomial equal to the current sum.
+	 *
+	 * @return Sum, with coefficients rounded to float
+	 */
+	public Polynomial toPolynomial() {
+		return toArrayPolynomial().toPolynomial();
+	}
+
+	/**
+	 * Makes sure the buffer holds at least the given number of coefficients.
+	 *
+	 * @param n Number of coefficients needed
+	 */
+	private void ensure(int n) {
+		if (n > sums.length) {
+			sums = Arrays.copyOf(sums, (int)Math.min(Math.max(n, 2L * sums.length), Integer.MAX_VALUE - 8));
+		}
+		length = Math.max(length, n);
+	}
+
+	/**
+	 * Rejects a negative degree.
+	 *
+	 * @param degree Degree of a term to be added
+	 * @throws IllegalArgumentException If the degree is negative
+	 */
+	private static void checkDegree(int degree) {
+		if (degree < 0) {
+			throw new IllegalArgumentException("Negative degree " + degree);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		return toArrayPolynomial().toString();
+	}
+}
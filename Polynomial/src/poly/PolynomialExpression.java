@@ -0,0 +1,452 @@
+package poly;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * This class records sums and products of polynomials without working them out.
+ * A chain such as
+ * <pre>
+ *     PolynomialExpression.of(a).multiply(b).add(c).multiply(d)
+ * </pre>
+ * only builds a small graph of operations. The graph can then be
+ * <ul>
+ *     <li><b>evaluated</b> at points directly, by evaluating every input polynomial
+ *     once and combining the numbers in double precision, so no product is ever
+ *     built, or</li>
+ *     <li><b>materialized</b> into a polynomial, after planning: nested products and
+ *     sums that are not shared are flattened, and the factors of a product are
+ *     multiplied smallest first (like building a Huffman tree), so large
+ *     intermediate results are built as late as possible.</li>
+ * </ul>
+ * Expressions never change once built, and subexpressions may be shared; a shared
+ * subexpression is worked out only once per evaluation or materialization.
+ *
+ * @author runb-cs112
+ *
+ */
+public abstract class PolynomialExpression {
+
+	/**
+	 * Returns an expression that is just the given polynomial.
+	 *
+	 * @param p Polynomial
+	 * @return Expression for p
+	 */
+	public static PolynomialExpression of(Polynomial p) {
+		return new Leaf(ArrayPolynomial.from(p));
+	}
+
+	/**
+	 * Returns an expression that is just the given polynomial.
+	 *
+	 * @param p Polynomial
+	 * @return Expression for p
+	 */
+	public static PolynomialExpression of(ArrayPolynomial p) {
+		return new Leaf(p);
+	}
+
+	/**
+	 * Returns the expression for this expression plus e.
+	 *
+	 * @param e Expression to be added
+	 * @return Sum expression
+	 */
+	public PolynomialExpression add(PolynomialExpression e) {
+		return new Sum(this, e);
+	}
+
+	/**
+	 * Returns the expression for this expression plus p.
+	 *
+	 * @param p Polynomial to be added
+	 * @return Sum expression
+	 */
+	public PolynomialExpression add(Polynomial p) {
+		return add(of(p));
+	}
+
+	/**
+	 * Returns the expression for this expression times e.
+	 *
+	 * @param e Expression to be multiplied with
+	 * @return Product expression
+	 */
+	public PolynomialExpression multiply(PolynomialExpression e) {
+		return new Product(this, e);
+	}
+
+	/**
+	 * Returns the expression for this expression times p.
+	 *
+	 * @param p Polynomial to be multiplied with
+	 * @return Product expression
+	 */
+	public PolynomialExpression multiply(Polynomial p) {
+		return multiply(of(p));
+	}
+
+	/**
+	 * Lists the distinct subexpressions of this expression, each after all of its
+	 * operands and this expression last. The graph is walked with a stack rather than
+	 * by recursion, so long chains of operations cannot overflow the call stack.
+	 *
+	 * @return Subexpressions, operands first
+	 */
+	private List<PolynomialExpression> subexpressions() {
+		List<PolynomialExpression> order = new ArrayList<PolynomialExpression>();
+		// False once a subexpression's operands have been pushed, true once it is listed.
+		IdentityHashMap<PolynomialExpression, Boolean> seen = new IdentityHashMap<PolynomialExpression, Boolean>();
+		ArrayDeque<PolynomialExpression> stack = new ArrayDeque<PolynomialExpression>();
+		stack.push(this);
+		while (!stack.isEmpty()) {
+			PolynomialExpression e = stack.peek();
+			Boolean listed = seen.get(e);
+			if (listed == null) {
+				seen.put(e, false);
+				if (e instanceof Op) {
+					List<PolynomialExpression> operands = ((Op)e).operands;
+					for (int i = operands.size()-1; i >= 0; i--) {
+						if (!seen.containsKey(operands.get(i))) {
+							stack.push(operands.get(i));
+						}
+					}
+				}
+			} else {
+				stack.pop();
+				if (!listed) {
+					seen.put(e, true);
+					order.add(e);
+				}
+			}
+		}
+		return order;
+	}
+
+	/**
+	 * Evaluates this expression at the given value of x, without building any
+	 * intermediate polynomial. Values are combined in double precision and rounded
+	 * once at the end.
+	 *
+	 * @param x Value at which this expression is to be evaluated
+	 * @return Value of this expression at x
+	 */
+	public float evaluate(float x) {
+		IdentityHashMap<PolynomialExpression, Double> known = new IdentityHashMap<PolynomialExpression, Double>();
+		for (PolynomialExpression e : subexpressions()) {
+			known.put(e, e.value(x, known));
+		}
+		return (float)(double)known.get(this);
+	}
+
+	/**
+	 * Evaluates this expression at each of the given values of x, without building
+	 * any intermediate polynomial. Values are combined in double precision and rounded
+	 * once at the end, so each one is the same as {@link #evaluate(float)} gives.
+	 *
+	 * @param xs Values at which this expression is to be evaluated
+	 * @param out Array to hold the value of this expression at xs[i] in out[i]
+	 * @throws IllegalArgumentException If out is shorter than xs
+	 */
+	public void evaluate(float[] xs, float[] out) {
+		if (out.length < xs.length) {
+			throw new IllegalArgumentException("Output array too short: " + out.length + " < " + xs.length);
+		}
+		IdentityHashMap<PolynomialExpression, double[]> known = new IdentityHashMap<PolynomialExpression, double[]>();
+		for (PolynomialExpression e : subexpressions()) {
+			known.put(e, e.values(xs, known));
+		}
+		double[] values = known.get(this);
+		for (int i = 0; i < xs.length; i++) {
+			out[i] = (float)values[i];
+		}
+	}
+
+	/**
+	 * Works out this expression as a polynomial, following the plan described in the
+	 * class comment. A sum or product that is used only once, as an operand of
+	 * another of the same kind, is flattened into it; one that is shared is built once
+	 * and used as a single operand wherever it appears.
+	 *
+	 * @return Polynomial equal to this expression
+	 */
+	public ArrayPolynomial toArrayPolynomial() {
+		List<PolynomialExpression> order = subexpressions();
+		IdentityHashMap<PolynomialExpression, Integer> uses = new IdentityHashMap<PolynomialExpression, Integer>();
+		IdentityHashMap<PolynomialExpression, PolynomialExpression> parent =
+				new IdentityHashMap<PolynomialExpression, PolynomialExpression>();
+		for (PolynomialExpression e : order) {
+			if (e instanceof Op) {
+				for (PolynomialExpression o : ((Op)e).operands) {
+					uses.merge(o, 1, Integer::sum);
+					parent.put(o, e);
+				}
+			}
+		}
+
+		IdentityHashMap<PolynomialExpression, ArrayPolynomial> built =
+				new IdentityHashMap<PolynomialExpression, ArrayPolynomial>();
+		for (PolynomialExpression e : order) {
+			if (!inlined(e, uses, parent)) {
+				built.put(e, e.build(built, uses));
+			}
+		}
+		return built.get(this);
+	}
+
+	/**
+	 * Returns true if a subexpression is flattened into its only user when building.
+	 *
+	 * @param e Subexpression
+	 * @param uses Number of times each subexpression is an operand
+	 * @param parent A subexpression that has each subexpression as an operand
+	 * @return True if e is a sum or product used once, by one of the same kind
+	 */
+	private static boolean inlined(PolynomialExpression e, IdentityHashMap<PolynomialExpression, Integer> uses,
+			IdentityHashMap<PolynomialExpression, PolynomialExpression> parent) {
+		return e instanceof Op && uses.get(e) != null && uses.get(e) == 1 && parent.get(e).getClass() == e.getClass();
+	}
+
+	/**
+	 * Works out this expression as a linked list polynomial.
+	 *
+	 * @return Polynomial equal to this expression
+	 */
+	public Polynomial toPolynomial() {
+		return toArrayPolynomial().toPolynomial();
+	}
+
+	/**
+	 * Returns an upper bound on the degree of this expression.
+	 *
+	 * @return Highest degree the expression can have, -1 if it is certainly zero
+	 */
+	public int degree() {
+		IdentityHashMap<PolynomialExpression, Integer> known = new IdentityHashMap<PolynomialExpression, Integer>();
+		for (PolynomialExpression e : subexpressions()) {
+			known.put(e, e.degree(known));
+		}
+		return known.get(this);
+	}
+
+	/**
+	 * Returns an upper bound on the degree of this expression, given those of its
+	 * operands.
+	 *
+	 * @param known Degree bounds of the operands
+	 * @return Highest degree the expression can have, -1 if it is certainly zero
+	 */
+	abstract int degree(IdentityHashMap<PolynomialExpression, Integer> known);
+
+	/**
+	 * Evaluates this expression at one point, given the values of its operands.
+	 *
+	 * @param x Point
+	 * @param known Values of the operands at x
+	 * @return Value at x
+	 */
+	abstract double value(double x, IdentityHashMap<PolynomialExpression, Double> known);
+
+	/**
+	 * Evaluates this expression at many points, given the values of its operands.
+	 *
+	 * @param xs Points
+	 * @param known Values of the operands at the points, which must not be changed
+	 * @return Values at the points
+	 */
+	abstract double[] values(float[] xs, IdentityHashMap<PolynomialExpression, double[]> known);
+
+	/**
+	 * Works out this expression as a polynomial, given the polynomials of the
+	 * operands that are not flattened into it.
+	 *
+	 * @param built Polynomials of the subexpressions worked out so far
+	 * @param uses Number of times each subexpression is an operand
+	 * @return Polynomial equal to this expression
+	 */
+	abstract ArrayPolynomial build(IdentityHashMap<PolynomialExpression, ArrayPolynomial> built,
+			IdentityHashMap<PolynomialExpression, Integer> uses);
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		return toArrayPolynomial().toString();
+	}
+
+	/**
+	 * Expression that is a single polynomial.
+	 */
+	static class Leaf extends PolynomialExpression {
+
+		final ArrayPolynomial p;
+
+		Leaf(ArrayPolynomial p) {
+			this.p = p;
+		}
+
+		int degree(IdentityHashMap<PolynomialExpression, Integer> known) {
+			return p.degree();
+		}
+
+		double value(double x, IdentityHashMap<PolynomialExpression, Double> known) {
+			return p.isDense() ? Horner.dense(p.coeffs, p.size, x) : Horner.sparse(p.degrees, p.coeffs, p.size, x);
+		}
+
+		double[] values(float[] xs, IdentityHashMap<PolynomialExpression, double[]> known) {
+			double[] out = new double[xs.length];
+			for (int i = 0; i < xs.length; i++) {
+				out[i] = value(xs[i], null);
+			}
+			return out;
+		}
+
+		ArrayPolynomial build(IdentityHashMap<PolynomialExpression, ArrayPolynomial> built,
+				IdentityHashMap<PolynomialExpression, Integer> uses) {
+			return p;
+		}
+	}
+
+	/**
+	 * Expression with operands, i.e. a sum or a product.
+	 */
+	abstract static class Op extends PolynomialExpression {
+
+		final List<PolynomialExpression> operands;
+
+		Op(PolynomialExpression a, PolynomialExpression b) {
+			this.operands = Arrays.asList(a, b);
+		}
+
+		/**
+		 * Combines two values of operands.
+		 */
+		abstract double combine(double a, double b);
+
+		double value(double x, IdentityHashMap<PolynomialExpression, Double> known) {
+			double v = known.get(operands.get(0));
+			for (int i = 1; i < operands.size(); i++) {
+				v = combine(v, known.get(operands.get(i)));
+			}
+			return v;
+		}
+
+		double[] values(float[] xs, IdentityHashMap<PolynomialExpression, double[]> known) {
+			double[] out = known.get(operands.get(0)).clone();
+			for (int i = 1; i < operands.size(); i++) {
+				double[] v = known.get(operands.get(i));
+				for (int j = 0; j < xs.length; j++) {
+					out[j] = combine(out[j], v[j]);
+				}
+			}
+			return out;
+		}
+
+		ArrayPolynomial build(IdentityHashMap<PolynomialExpression, ArrayPolynomial> built,
+				IdentityHashMap<PolynomialExpression, Integer> uses) {
+			// Collect the operands, going into those of the same kind used only here.
+			// Counting the terms of a dense operand is a scan, so it is done once each.
+			PriorityQueue<Operand> queue = new PriorityQueue<Operand>();
+			ArrayDeque<PolynomialExpression> stack = new ArrayDeque<PolynomialExpression>(operands);
+			while (!stack.isEmpty()) {
+				PolynomialExpression e = stack.pop();
+				if (e.getClass() == getClass() && uses.get(e) == 1) {
+					stack.addAll(((Op)e).operands);
+				} else {
+					queue.add(new Operand(built.get(e)));
+				}
+			}
+
+			// Combine the two smallest operands first, then put the result back in line.
+			while (queue.size() > 1) {
+				queue.add(new Operand(combine(queue.poll().p, queue.poll().p)));
+			}
+			return queue.poll().p;
+		}
+
+		/**
+		 * Combines two worked out operands.
+		 */
+		abstract ArrayPolynomial combine(ArrayPolynomial a, ArrayPolynomial b);
+	}
+
+	/**
+	 * Worked out operand waiting in a build queue, ordered by its number of terms.
+	 */
+	private static final class Operand implements Comparable<Operand> {
+
+		final ArrayPolynomial p;
+
+		final int terms;
+
+		Operand(ArrayPolynomial p) {
+			this.p = p;
+			this.terms = p.terms();
+		}
+
+		public int compareTo(Operand o) {
+			return Integer.compare(terms, o.terms);
+		}
+	}
+
+	/**
+	 * Sum of two or more expressions.
+	 */
+	static class Sum extends Op {
+
+		Sum(PolynomialExpression a, PolynomialExpression b) {
+			super(a, b);
+		}
+
+		int degree(IdentityHashMap<PolynomialExpression, Integer> known) {
+			int d = -1;
+			for (PolynomialExpression e : operands) {
+				d = Math.max(d, known.get(e));
+			}
+			return d;
+		}
+
+		double combine(double a, double b) {
+			return a + b;
+		}
+
+		ArrayPolynomial combine(ArrayPolynomial a, ArrayPolynomial b) {
+			return a.add(b);
+		}
+	}
+
+	/**
+	 * Product of two or more expressions.
+	 */
+	static class Product extends Op {
+
+		Product(PolynomialExpression a, PolynomialExpression b) {
+			super(a, b);
+		}
+
+		int degree(IdentityHashMap<PolynomialExpression, Integer> known) {
+			int d = 0;
+			for (PolynomialExpression e : operands) {
+				if (known.get(e) < 0) {
+					return -1;
+				}
+				// Saturates rather than overflowing, since the bound is only an upper bound.
+				d = (int)Math.min(Integer.MAX_VALUE, (long)d + known.get(e));
+			}
+			return d;
+		}
+
+		double combine(double a, double b) {
+			return a * b;
+		}
+
+		ArrayPolynomial combine(ArrayPolynomial a, ArrayPolynomial b) {
+			return a.multiply(b);
+		}
+	}
+}
@@ -0,0 +1,216 @@
+package poly;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class writes and maps polynomials in a compact binary format. All values are
+ * little-endian:
+ * <pre>
+ *     offset  size     contents
+ *     0       4        magic "POLY"
+ *     4       4        format version (1)
+ *     8       8        number of terms n
+ *     16      4        lowest degree (0 if n is 0)
+ *     20      4        highest degree (-1 if n is 0)
+ *     24      4*n      degrees, int32, strictly ascending
+ *     24+4n   4*n      coefficients, float32, none zero
+ * </pre>
+ * A mapped file needs no parsing at all: {@link #map(Path)} checks the header and
+ * makes one pass over the degree column to check that it is strictly ascending and
+ * agrees with the header, since {@link MappedPolynomial} relies on that order. It
+ * then hands back a MappedPolynomial that reads the two columns in place.
+ *
+ * @author runb-cs112
+ *
+ */
+public class PolynomialFile {
+
+	/**
+	 * "POLY" read as a little-endian int.
+	 */
+	static final int MAGIC = 'P' | 'O' << 8 | 'L' << 16 | 'Y' << 24;
+
+	/**
+	 * Version written by this class.
+	 */
+	static final int VERSION = 1;
+
+	/**
+	 * Size of the header in bytes.
+	 */
+	static final int HEADER = 24;
+
+	/**
+	 * Most terms in a file, so that each column fits in one mapping.
+	 */
+	static final int MAX_TERMS = Integer.MAX_VALUE / 4;
+
+	/**
+	 * Writes a polynomial in the binary format.
+	 *
+	 * @param p Polynomial to be written
+	 * @param file File to write, replaced if it exists
+	 * @throws IOException If the file cannot be written
+	 */
+	public static void write(Polynomial p, Path file) throws IOException {
+		write(ArrayPolynomial.from(p), file);
+	}
+
+	/**
+	 * Writes a polynomial in the binary format.
+	 *
+	 * @param p Polynomial to be written
+	 * @param file File to write, replaced if it exists
+	 * @throws IOException If the file cannot be written
+	 * @throws IllegalArgumentException If p has a negative degree or too many terms, so
+	 * that {@link #map} could not read the file back; nothing is written then
+	 */
+	public static void write(ArrayPolynomial p, Path file) throws IOException {
+		ArrayPolynomial s = p.toSparse();
+		int n = s.size;
+		if (n > MAX_TERMS) {
+			throw new IllegalArgumentException("Cannot write " + n + " terms, at most " + MAX_TERMS);
+		}
+		String problem = degreeProblem(IntBuffer.wrap(s.degrees), n);
+		if (problem != null) {
+			throw new IllegalArgumentException("Cannot write a polynomial with " + problem);
+		}
+
+		try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE,
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buf = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+			buf.putInt(MAGIC);
+			buf.putInt(VERSION);
+			buf.putLong(n);
+			buf.putInt(n == 0 ? 0 : s.degrees[0]);
+			buf.putInt(n == 0 ? -1 : s.degrees[n-1]);
+
+			for (int i = 0; i < n; i++) {
+				if (buf.remaining() < 4) {
+					drain(ch, buf);
+				}
+				buf.putInt(s.degrees[i]);
+			}
+			for (int i = 0; i < n; i++) {
+				if (buf.remaining() < 4) {
+					drain(ch, buf);
+				}
+				buf.putFloat(s.coeffs[i]);
+			}
+			drain(ch, buf);
+		}
+	}
+
+	/**
+	 * Writes out everything in the buffer and clears it.
+	 *
+	 * @param ch Channel to write to
+	 * @param buf Buffer to write out
+	 * @throws IOException If the channel cannot be written
+	 */
+	private static void drain(FileChannel ch, ByteBuffer buf) throws IOException {
+		buf.flip();
+		while (buf.hasRemaining()) {
+			ch.write(buf);
+		}
+		buf.clear();
+	}
+
+	/**
+	 * Maps a polynomial file into memory.
+	 *
+	 * @param file File in the binary format
+	 * @return Polynomial that reads its terms from the mapped file
+	 * @throws IOException If the file cannot be read, is not in the binary format, or
+	 * its degrees are not strictly ascending or do not match the header
+	 */
+	public static MappedPolynomial map(Path file) throws IOException {
+		try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (ch.size() < HEADER) {
+				throw new IOException(file + " is too short to be a polynomial file");
+			}
+			ByteBuffer header = ch.map(FileChannel.MapMode.READ_ONLY, 0, HEADER).order(ByteOrder.LITTLE_ENDIAN);
+			if (header.getInt(0) != MAGIC) {
+				throw new IOException(file + " is not a polynomial file");
+			}
+			if (header.getInt(4) != VERSION) {
+				throw new IOException(file + " has unsupported version " + header.getInt(4));
+			}
+			long n = header.getLong(8);
+			if (n < 0 || n > MAX_TERMS) {
+				throw new IOException(file + " has an invalid term count " + n);
+			}
+			if (ch.size() != HEADER + 8 * n) {
+				throw new IOException(file + " should be " + (HEADER + 8 * n) + " bytes, not " + ch.size());
+			}
+
+			// Each column gets its own mapping, so either can be up to 2GB. The mappings
+			// stay valid after the channel is closed.
+			ByteBuffer degrees = ch.map(FileChannel.MapMode.READ_ONLY, HEADER, 4 * n)
+					.order(ByteOrder.LITTLE_ENDIAN);
+			ByteBuffer coeffs = ch.map(FileChannel.MapMode.READ_ONLY, HEADER + 4 * n, 4 * n)
+					.order(ByteOrder.LITTLE_ENDIAN);
+			IntBuffer d = degrees.asIntBuffer();
+			checkDegrees(file, d, (int)n, header.getInt(16), header.getInt(20));
+			return new MappedPolynomial(d, coeffs.asFloatBuffer(), (int)n,
+					header.getInt(16), header.getInt(20));
+		}
+	}
+
+	/**
+	 * Checks that the degree column is strictly ascending, starts at 0 or above, and
+	 * runs from the lowest to the highest degree given in the header.
+	 *
+	 * @param file File, for error messages
+	 * @param degrees Degree column
+	 * @param n Number of terms
+	 * @param min Lowest degree in the header
+	 * @param max Highest degree in the header
+	 * @throws IOException If the column or the header is inconsistent
+	 */
+	private static void checkDegrees(Path file, IntBuffer degrees, int n, int min, int max) throws IOException {
+		if (n == 0) {
+			if (min != 0 || max != -1) {
+				throw new IOException(file + " has no terms but degrees " + min + " to " + max);
+			}
+			return;
+		}
+		String problem = degreeProblem(degrees, n);
+		if (problem != null) {
+			throw new IOException(file + " has " + problem);
+		}
+		if (degrees.get(0) != min || degrees.get(n-1) != max) {
+			throw new IOException(file + " has degrees " + degrees.get(0) + " to " + degrees.get(n-1)
+					+ " but its header says " + min + " to " + max);
+		}
+	}
+
+	/**
+	 * Checks that degrees are 0 or above and strictly ascending, as both {@link #write}
+	 * and {@link #map} require.
+	 *
+	 * @param degrees Degrees, from index 0
+	 * @param n Number of degrees
+	 * @return What is wrong with the first bad degree, or null if all are fine
+	 */
+	private static String degreeProblem(IntBuffer degrees, int n) {
+		int prev = -1;
+		for (int i = 0; i < n; i++) {
+			int degree = degrees.get(i);
+			if (degree < 0) {
+				return "negative degree " + degree + " at term " + i;
+			}
+			if (degree <= prev) {
+				return "degree " + degree + " after " + prev + " at term " + i;
+			}
+			prev = degree;
+		}
+		return null;
+	}
+}
@@ -0,0 +1,400 @@
+package poly;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * This class collects counters and latency histograms for the polynomial operations:
+ * how often each operation ran, how many terms it processed and how long it took, plus
+ * the list nodes walked by {@link Polynomial#addNode(Node)} and the terms allocated
+ * in new lists.
+ * <p>
+ * Collection is off unless the system property {@code poly.metrics} is true or
+ * {@link #setEnabled(boolean)} turns it on. While it is off an operation only reads
+ * one flag, so it costs next to nothing. While it is on, counts are added to
+ * {@link LongAdder}s, which do not contend between threads, and latencies go into
+ * histograms with one bucket per power of two nanoseconds.
+ * <p>
+ * Values can be pulled with {@link #snapshot()}, or over JMX after
+ * {@link #registerMBean()} under the name {@value #OBJECT_NAME}.
+ *
+ * @author runb-cs112
+ *
+ */
+public final class PolynomialMetrics {
+
+	/**
+	 * Operations that are measured.
+	 */
+	public enum Operation {
+		PARSE, ADD, ADD_NODE, MULTIPLY, EVALUATE, EVALUATE_BATCH
+	}
+
+	/**
+	 * JMX name of the metrics bean.
+	 */
+	public static final String OBJECT_NAME = "poly:type=PolynomialMetrics";
+
+	/**
+	 * Start time returned when collection is off.
+	 */
+	static final long OFF = Long.MIN_VALUE;
+
+	/**
+	 * Number of histogram buckets; bucket b holds latencies below 2^b nanoseconds.
+	 */
+	static final int BUCKETS = 64;
+
+	private static final int OPS = Operation.values().length;
+
+	private static volatile boolean enabled = Boolean.getBoolean("poly.metrics");
+
+	private static final LongAdder[] counts = adders(OPS), terms = adders(OPS), nanos = adders(OPS);
+
+	private static final LongAdder[] histogram = adders(OPS * BUCKETS);
+
+	private static final LongAdder nodesTraversed = new LongAdder(), termsAllocated = new LongAdder();
+
+	private PolynomialMetrics() {
+	}
+
+	private static LongAdder[] adders(int n) {
+		LongAdder[] a = new LongAdder[n];
+		for (int i = 0; i < n; i++) {
+			a[i] = new LongAdder();
+		}
+		return a;
+	}
+
+	/**
+	 * Returns true if metrics are being collected.
+	 *
+	 * @return True if collection is on
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Turns collection on or off. Values collected so far are kept.
+	 *
+	 * @param on True to collect metrics
+	 */
+	public static void setEnabled(boolean on) {
+		enabled = on;
+	}
+
+	/**
+	 * Marks the start of an operation.
+	 *
+	 * @return Start time to pass to {@link #stop}, or {@link #OFF}
+	 */
+	static long start() {
+		return enabled ? System.nanoTime() : OFF;
+	}
+
+	/**
+	 * Records an operation that has finished.
+	 *
+	 * @param op Operation
+	 * @param start Value returned by {@link #start()}
+	 * @param processed Number of terms the operation processed
+	 */
+	static void stop(Operation op, long start, long processed) {
+		if (start == OFF) {
+			return;
+		}
+		long ns = Math.max(0, System.nanoTime() - start);
+		int i = op.ordinal();
+		counts[i].increment();
+		terms[i].add(processed);
+		nanos[i].add(ns);
+		histogram[i * BUCKETS + Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(ns))].increment();
+	}
+
+	/**
+	 * Records list nodes walked while searching a list.
+	 *
+	 * @param nodes Number of nodes
+	 */
+	static void traversed(long nodes) {
+		if (enabled) {
+			nodesTraversed.add(nodes);
+		}
+	}
+
+	/**
+	 * Records terms allocated in new list nodes.
+	 *
+	 * @param n Number of terms
+	 */
+	static void allocated(long n) {
+		if (enabled) {
+			termsAllocated.add(n);
+		}
+	}
+
+	/**
+	 * Sets all values back to zero.
+	 */
+	public static void reset() {
+		for (int i = 0; i < OPS; i++) {
+			counts[i].reset();
+			terms[i].reset();
+			nanos[i].reset();
+		}
+		for (LongAdder h : histogram) {
+			h.reset();
+		}
+		nodesTraversed.reset();
+		termsAllocated.reset();
+	}
+
+	/**
+	 * Copies the current values. Operations still running while the copy is made may
+	 * be partly included.
+	 *
+	 * @return Snapshot of all values
+	 */
+	public static Snapshot snapshot() {
+		Snapshot s = new Snapshot();
+		for (Operation op : Operation.values()) {
+			int i = op.ordinal();
+			long[] h = new long[BUCKETS];
+			for (int b = 0; b < BUCKETS; b++) {
+				h[b] = histogram[i * BUCKETS + b].sum();
+			}
+			s.counts.put(op, counts[i].sum());
+			s.terms.put(op, terms[i].sum());
+			s.nanos.put(op, nanos[i].sum());
+			s.histograms.put(op, h);
+		}
+		s.nodesTraversed = nodesTraversed.sum();
+		s.termsAllocated = termsAllocated.sum();
+		return s;
+	}
+
+	/**
+	 * Registers the metrics bean with the platform MBean server, if it is not
+	 * registered yet.
+	 *
+	 * @return Name of the bean
+	 * @throws JMException If the bean cannot be registered
+	 */
+	public static synchronized ObjectName registerMBean() throws JMException {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(OBJECT_NAME);
+		if (!server.isRegistered(name)) {
+			server.registerMBean(new Bean(), name);
+		}
+		return name;
+	}
+
+	/**
+	 * Values of all metrics at one point in time.
+	 */
+	public static final class Snapshot {
+
+		private final Map<Operation, Long> counts = new EnumMap<Operation, Long>(Operation.class),
+				terms = new EnumMap<Operation, Long>(Operation.class),
+				nanos = new EnumMap<Operation, Long>(Operation.class);
+
+		private final Map<Operation, long[]> histograms = new EnumMap<Operation, long[]>(Operation.class);
+
+		private long nodesTraversed, termsAllocated;
+
+		private Snapshot() {
+		}
+
+		/**
+		 * Returns the number of times an operation ran.
+		 *
+		 * @param op Operation
+		 * @return Count
+		 */
+		public long count(Operation op) {
+			return counts.get(op);
+		}
+
+		/**
+		 * Returns the number of terms an operation processed, over all runs.
+		 *
+		 * @param op Operation
+		 * @return Terms processed
+		 */
+		public long terms(Operation op) {
+			return terms.get(op);
+		}
+
+		/**
+		 * Returns the total time spent in an operation.
+		 *
+		 * @param op Operation
+		 * @return Nanoseconds
+		 */
+		public long totalNanos(Operation op) {
+			return nanos.get(op);
+		}
+
+		/**
+		 * Returns the mean latency of an operation.
+		 *
+		 * @param op Operation
+		 * @return Nanoseconds, 0 if it never ran
+		 */
+		public double meanNanos(Operation op) {
+			long n = count(op);
+			return n == 0 ? 0 : (double)totalNanos(op) / n;
+		}
+
+		/**
+		 * Returns an upper bound on a latency percentile of an operation, accurate to a
+		 * factor of two.
+		 *
+		 * @param op Operation
+		 * @param p Percentile, 0 to 100
+		 * @return Nanoseconds, 0 if it never ran
+		 */
+		public long percentileNanos(Operation op, double p) {
+			long[] h = histograms.get(op);
+			long n = count(op);
+			long rank = Math.max(1, (long)Math.ceil(p / 100 * n));
+			long seen = 0;
+			for (int b = 0; b < BUCKETS; b++) {
+				seen += h[b];
+				if (seen >= rank) {
+					return b == BUCKETS - 1 ? Long.MAX_VALUE : (1L << b) - 1;
+				}
+			}
+			return 0;
+		}
+
+		/**
+		 * Returns the latency histogram of an operation.
+		 *
+		 * @param op Operation
+		 * @return Count of runs in each bucket; bucket b holds latencies from 2^(b-1)
+		 * up to 2^b - 1 nanoseconds
+		 */
+		public long[] histogram(Operation op) {
+			return histograms.get(op).clone();
+		}
+
+		/**
+		 * Returns the number of list nodes walked by addNode.
+		 *
+		 * @return Nodes traversed
+		 */
+		public long nodesTraversed() {
+			return nodesTraversed;
+		}
+
+		/**
+		 * Returns the number of terms allocated in new list nodes.
+		 *
+		 * @return Terms allocated
+		 */
+		public long termsAllocated() {
+			return termsAllocated;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Object#toString()
+		 */
+		public String toString() {
+			StringBuilder sb = new StringBuilder();
+			for (Operation op : Operation.values()) {
+				if (count(op) > 0) {
+					sb.append(String.format("%-15s count=%d terms=%d mean=%.0fns p50<=%dns p99<=%dns%n", op,
+							count(op), terms(op), meanNanos(op), percentileNanos(op, 50), percentileNanos(op, 99)));
+				}
+			}
+			sb.append("nodesTraversed=").append(nodesTraversed).append(" termsAllocated=").append(termsAllocated);
+			return sb.toString();
+		}
+	}
+
+	/**
+	 * JMX view of the metrics.
+	 */
+	public interface PolynomialMetricsMXBean {
+		boolean isEnabled();
+		void setEnabled(boolean on);
+		Map<String, Long> getCounts();
+		Map<String, Long> getTermsProcessed();
+		Map<String, Double> getMeanLatencyNanos();
+		Map<String, Long> getP99LatencyNanos();
+		long getNodesTraversed();
+		long getTermsAllocated();
+		void reset();
+	}
+
+	/**
+	 * Bean registered by {@link #registerMBean()}.
+	 */
+	private static final class Bean implements PolynomialMetricsMXBean {
+
+		public boolean isEnabled() {
+			return PolynomialMetrics.isEnabled();
+		}
+
+		public void setEnabled(boolean on) {
+			PolynomialMetrics.setEnabled(on);
+		}
+
+		public Map<String, Long> getCounts() {
+			Snapshot s = snapshot();
+			Map<String, Long> m = new LinkedHashMap<String, Long>();
+			for (Operation op : Operation.values()) {
+				m.put(op.name(), s.count(op));
+			}
+			return m;
+		}
+
+		public Map<String, Long> getTermsProcessed() {
+			Snapshot s = snapshot();
+			Map<String, Long> m = new LinkedHashMap<String, Long>();
+			for (Operation op : Operation.values()) {
+				m.put(op.name(), s.terms(op));
+			}
+			return m;
+		}
+
+		public Map<String, Double> getMeanLatencyNanos() {
+			Snapshot s = snapshot();
+			Map<String, Double> m = new LinkedHashMap<String, Double>();
+			for (Operation op : Operation.values()) {
+				m.put(op.name(), s.meanNanos(op));
+			}
+			return m;
+		}
+
+		public Map<String, Long> getP99LatencyNanos() {
+			Snapshot s = snapshot();
+			Map<String, Long> m = new LinkedHashMap<String, Long>();
+			for (Operation op : Operation.values()) {
+				m.put(op.name(), s.percentileNanos(op, 99));
+			}
+			return m;
+		}
+
+		public long getNodesTraversed() {
+			return nodesTraversed.sum();
+		}
+
+		public long getTermsAllocated() {
+			return termsAllocated.sum();
+		}
+
+		public void reset() {
+			PolynomialMetrics.reset();
+		}
+	}
+}
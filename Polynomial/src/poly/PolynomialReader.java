@@ -0,0 +1,355 @@
+package poly;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class loads polynomials stored in the text format read by
+ * {@link Polynomial#Polynomial(java.io.BufferedReader)}, one
+ * <pre>
+ *     &lt;coeff&gt; &lt;degree&gt;
+ * </pre>
+ * pair per line in descending order of degree. The file is memory-mapped in large
+ * windows and the bytes are decoded straight into primitive arrays, so no strings,
+ * tokenizers or nodes are created per line. Since the degrees come in descending
+ * order, the terms only have to be reversed to be in the ascending order used by
+ * {@link ArrayPolynomial}; nothing is sorted.
+ * <p>
+ * Coefficients with at most 18 significant digits and a small decimal exponent are
+ * decoded with a single correctly rounded double operation and then rounded to
+ * float. Rounding twice gives the same float as {@link Float#parseFloat} unless the
+ * double lands exactly halfway between two floats, so that case, and anything longer
+ * or unusual (NaN, Infinity), goes through {@link Float#parseFloat}.
+ *
+ * @author runb-cs112
+ *
+ */
+public class PolynomialReader {
+
+	/**
+	 * Number of bytes mapped at a time.
+	 */
+	static final int WINDOW = 1 << 28;
+
+	/**
+	 * Exact powers of ten that a double can hold.
+	 */
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+		1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
+	/**
+	 * Degrees read so far, in file order.
+	 */
+	private int[] degrees;
+
+	/**
+	 * Coefficients read so far, in file order.
+	 */
+	private float[] coeffs;
+
+	/**
+	 * Number of terms read so far.
+	 */
+	private int n;
+
+	/**
+	 * Number of lines read so far, for error messages.
+	 */
+	private long line;
+
+	/**
+	 * Position in the current window, moved along by the decoding methods.
+	 */
+	private int pos;
+
+	/**
+	 * Reads a polynomial from the given file.
+	 *
+	 * @param file File in the polynomial text format
+	 * @return Polynomial in the file
+	 * @throws IOException If the file cannot be read or a line is malformed
+	 */
+	public static ArrayPolynomial read(Path file) throws IOException {
+		long start = PolynomialMetrics.start();
+		ArrayPolynomial p = new PolynomialReader().load(file);
+		PolynomialMetrics.stop(PolynomialMetrics.Operation.PARSE, start, p.terms());
+		return p;
+	}
+
+	/**
+	 * Reads a polynomial from the given file into a linked list polynomial.
+	 *
+	 * @param file File in the polynomial text format
+	 * @return Polynomial in the file
+	 * @throws IOException If the file cannot be read or a line is malformed
+	 */
+	public static Polynomial readPolynomial(Path file) throws IOException {
+		return read(file).toPolynomial();
+	}
+
+	/**
+	 * Decodes the whole file, one window at a time.
+	 *
+	 * @param file File in the polynomial text format
+	 * @return Polynomial in the file
+	 * @throws IOException If the file cannot be read or a line is malformed
+	 */
+	private ArrayPolynomial load(Path file) throws IOException {
+		try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+			long length = ch.size();
+
+			// Start from a guess of 8 bytes per line; the arrays grow if there are more.
+			int guess = (int)Math.min(Math.max(16, length / 8), 1 << 20);
+			degrees = new int[guess];
+			coeffs = new float[guess];
+
+			long start = 0;
+			while (start < length) {
+				int size = (int)Math.min(WINDOW, length - start);
+				MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, start, size);
+				boolean last = start + size == length;
+				int done = decodeLines(buf, size, last);
+				if (done == 0 && !last) {
+					throw new IOException("Line " + (line+1) + " is longer than " + WINDOW + " bytes");
+				}
+				start += done;
+			}
+		}
+
+		// Put the terms in ascending order of degree.
+		boolean descending = true;
+		for (int i = 1; i < n; i++) {
+			if (degrees[i] >= degrees[i-1]) {
+				descending = false;
+				break;
+			}
+		}
+		for (int i = 0, j = n-1; i < j; i++, j--) {
+			int d = degrees[i]; degrees[i] = degrees[j]; degrees[j] = d;
+			float c = coeffs[i]; coeffs[i] = coeffs[j]; coeffs[j] = c;
+		}
+		if (!descending) {
+			ArrayPolynomial.sortByDegree(degrees, coeffs, n);
+		}
+		return ArrayPolynomial.sparse(degrees, coeffs, n);
+	}
+
+	/**
+	 * Decodes all complete lines in a window.
+	 *
+	 * @param buf Mapped window
+	 * @param size Number of bytes in the window
+	 * @param last True if the window runs to the end of the file
+	 * @return Number of bytes decoded; the rest starts an incomplete line
+	 * @throws IOException If a line is malformed
+	 */
+	private int decodeLines(MappedByteBuffer buf, int size, boolean last) throws IOException {
+		int lineStart = 0;
+		while (lineStart < size) {
+			// Find the end of the line, or stop if it runs past this window.
+			int end = lineStart;
+			while (end < size && buf.get(end) != '\n') {
+				end++;
+			}
+			if (end == size && !last) {
+				return lineStart;
+			}
+			line++;
+
+			pos = lineStart;
+			skipSpaces(buf, end);
+			if (pos < end) {
+				float coeff = decodeFloat(buf, end);
+				skipSpaces(buf, end);
+				int degree = decodeInt(buf, end);
+				skipSpaces(buf, end);
+				if (pos != end) {
+					throw malformed();
+				}
+				add(coeff, degree);
+			}
+			lineStart = end + 1;
+		}
+		return size;
+	}
+
+	/**
+	 * Appends a term, growing the arrays if they are full.
+	 *
+	 * @param coeff Coefficient
+	 * @param degree Degree
+	 */
+	private void add(float coeff, int degree) {
+		if (n == degrees.length) {
+			int cap = (int)Math.min((long)n * 2, Integer.MAX_VALUE - 8);
+			degrees = java.util.Arrays.copyOf(degrees, cap);
+			coeffs = java.util.Arrays.copyOf(coeffs, cap);
+		}
+		degrees[n] = degree;
+		coeffs[n] = coeff;
+		n++;
+	}
+
+	/**
+	 * Moves past spaces, tabs and carriage returns.
+	 *
+	 * @param buf Mapped window
+	 * @param end End of the current line
+	 */
+	private void skipSpaces(MappedByteBuffer buf, int end) {
+		while (pos < end) {
+			byte b = buf.get(pos);
+			if (b != ' ' && b != '\t' && b != '\r') {
+				break;
+			}
+			pos++;
+		}
+	}
+
+	/**
+	 * Decodes a decimal integer.
+	 *
+	 * @param buf Mapped window
+	 * @param end End of the current line
+	 * @return Decoded value
+	 * @throws IOException If there is no integer here or it does not fit in an int
+	 */
+	private int decodeInt(MappedByteBuffer buf, int end) throws IOException {
+		boolean negative = false;
+		if (pos < end && (buf.get(pos) == '-' || buf.get(pos) == '+')) {
+			negative = buf.get(pos) == '-';
+			pos++;
+		}
+		int start = pos;
+		long value = 0;
+		while (pos < end) {
+			int digit = buf.get(pos) - '0';
+			if (digit < 0 || digit > 9) {
+				break;
+			}
+			value = value * 10 + digit;
+			if (value > (long)Integer.MAX_VALUE + 1) {
+				throw malformed();
+			}
+			pos++;
+		}
+		if (pos == start) {
+			throw malformed();
+		}
+		value = negative ? -value : value;
+		if (value > Integer.MAX_VALUE) {
+			throw malformed();
+		}
+		return (int)value;
+	}
+
+	/**
+	 * Decodes a decimal floating point number.
+	 *
+	 * @param buf Mapped window
+	 * @param end End of the current line
+	 * @return Decoded value, rounded to float
+	 * @throws IOException If there is no number here
+	 */
+	private float decodeFloat(MappedByteBuffer buf, int end) throws IOException {
+		int start = pos;
+		boolean negative = false;
+		if (pos < end && (buf.get(pos) == '-' || buf.get(pos) == '+')) {
+			negative = buf.get(pos) == '-';
+			pos++;
+		}
+
+		long mantissa = 0;
+		int digits = 0, exponent = 0;
+		boolean any = false, dot = false;
+		while (pos < end) {
+			byte b = buf.get(pos);
+			if (b >= '0' && b <= '9') {
+				any = true;
+				if (mantissa == 0 && b == '0') {
+					// Leading zeros are not significant.
+				} else if (digits < 18) {
+					mantissa = mantissa * 10 + (b - '0');
+					digits++;
+				} else {
+					return slowFloat(buf, start, end);
+				}
+				if (dot) {
+					exponent--;
+				}
+			} else if (b == '.' && !dot) {
+				dot = true;
+			} else {
+				break;
+			}
+			pos++;
+		}
+		if (!any) {
+			return slowFloat(buf, start, end);
+		}
+
+		if (pos < end && (buf.get(pos) == 'e' || buf.get(pos) == 'E')) {
+			pos++;
+			exponent += decodeInt(buf, end);
+		}
+
+		double value;
+		if (mantissa == 0) {
+			value = 0;
+		} else if (exponent >= 0 && exponent < POWERS_OF_TEN.length && mantissa < (1L << 53)) {
+			value = mantissa * POWERS_OF_TEN[exponent];
+		} else if (exponent < 0 && -exponent < POWERS_OF_TEN.length && mantissa < (1L << 53)) {
+			value = mantissa / POWERS_OF_TEN[-exponent];
+		} else {
+			return slowFloat(buf, start, end);
+		}
+
+		// Every point halfway between two floats is a double, so the double is on the
+		// same side of it as the exact value unless it is that point.
+		float f = (float)value;
+		if (f != value) {
+			double next = value > f ? Math.nextUp(f) : Math.nextDown(f);
+			if (value == (f + next) / 2) {
+				return slowFloat(buf, start, end);
+			}
+		}
+		return negative ? -f : f;
+	}
+
+	/**
+	 * Decodes the number starting at the given position with {@link Float#parseFloat}.
+	 *
+	 * @param buf Mapped window
+	 * @param start Start of the number
+	 * @param end End of the current line
+	 * @return Decoded value
+	 * @throws IOException If there is no number here
+	 */
+	private float slowFloat(MappedByteBuffer buf, int start, int end) throws IOException {
+		pos = start;
+		while (pos < end && buf.get(pos) != ' ' && buf.get(pos) != '\t' && buf.get(pos) != '\r') {
+			pos++;
+		}
+		byte[] bytes = new byte[pos - start];
+		buf.get(start, bytes);
+		try {
+			return Float.parseFloat(new String(bytes, java.nio.charset.StandardCharsets.US_ASCII));
+		} catch (NumberFormatException e) {
+			throw malformed();
+		}
+	}
+
+	/**
+	 * Makes the exception for a malformed current line.
+	 *
+	 * @return Exception naming the line
+	 */
+	private IOException malformed() {
+		return new IOException("Malformed polynomial term on line " + line);
+	}
+}
@@ -48,6 +48,11 @@ public class Polytest {
 	}
 	
 	public static void main(String[] args) throws IOException {
+		if (args.length > 0 && args[0].equals("-batch")) {
+			BatchRunner.main(java.util.Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
+		
 		br1 = new BufferedReader(new InputStreamReader(System.in));
 		System.out.print("Enter the name of the polynomial file => ");
 		br2 = new BufferedReader(new FileReader(br1.readLine()));
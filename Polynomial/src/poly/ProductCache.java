@@ -0,0 +1,384 @@
+package poly;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class remembers products and powers of polynomials, so a product that is asked
+ * for again is looked up instead of recomputed. It is opt-in: pass a cache to
+ * {@link Polynomial#multiply(Polynomial, ProductCache)} or
+ * {@link Polynomial#pow(int, ProductCache)}, or call it directly.
+ * <p>
+ * Entries are found by a hash of the terms of the operands and then checked term by
+ * term, so equal polynomials built separately share an entry and a hash collision can
+ * never return a wrong product. Since a*b = b*a, the order of the operands does not
+ * matter.
+ * <p>
+ * The cache holds at most a given total number of terms, counting the result and the
+ * operands kept for checking, and evicts the least recently used entries to stay
+ * under it. A result bigger than the whole budget is returned but not kept.
+ * <p>
+ * All methods are thread-safe. The hash and term count of each operand are worked out
+ * once per call, before any shared state is touched, and entries are kept in a
+ * {@link ConcurrentHashMap}, so the term by term checks run without a lock and
+ * threads looking up large operands do not wait for each other. Only the order of
+ * use, kept apart from the map, is updated under a lock, and that takes constant
+ * time. Products are computed outside the lock too; two threads missing on the same
+ * product at once may both compute it, and the first one to finish is kept.
+ *
+ * @author runb-cs112
+ *
+ */
+public class ProductCache {
+
+	/**
+	 * Cached results, by operation.
+	 */
+	private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<Key, Entry>();
+
+	/**
+	 * Entries kept, least recently used first. Entries are compared by identity, so
+	 * finding one here takes constant time. Guarded by itself, together with terms.
+	 */
+	private final LinkedHashMap<Entry, Boolean> recency = new LinkedHashMap<Entry, Boolean>(16, 0.75f, true);
+
+	/**
+	 * Largest total number of terms kept.
+	 */
+	private final long maxTerms;
+
+	/**
+	 * Total number of terms kept now.
+	 */
+	private long terms;
+
+	/**
+	 * Number of lookups that found their result, did not, and entries evicted.
+	 */
+	private final AtomicLong hits = new AtomicLong(), misses = new AtomicLong(), evictions = new AtomicLong();
+
+	/**
+	 * Initializes an empty cache.
+	 *
+	 * @param maxTerms Largest total number of terms kept
+	 * @throws IllegalArgumentException If maxTerms is negative
+	 */
+	public ProductCache(long maxTerms) {
+		if (maxTerms < 0) {
+			throw new IllegalArgumentException("Negative cache size " + maxTerms);
+		}
+		this.maxTerms = maxTerms;
+	}
+
+	/**
+	 * Returns the product of a and b, from the cache if it is there.
+	 *
+	 * @param a First polynomial
+	 * @param b Second polynomial
+	 * @return A new polynomial which is the product of a and b.
+	 */
+	public Polynomial multiply(Polynomial a, Polynomial b) {
+		return multiply(ArrayPolynomial.from(a), ArrayPolynomial.from(b)).toPolynomial();
+	}
+
+	/**
+	 * Returns the product of a and b, from the cache if it is there.
+	 *
+	 * @param a First polynomial
+	 * @param b Second polynomial
+	 * @return Product of a and b
+	 */
+	public ArrayPolynomial multiply(ArrayPolynomial a, ArrayPolynomial b) {
+		Key key = new Key(a, b, 0);
+		ArrayPolynomial result = get(key);
+		if (result == null) {
+			result = a.multiply(b);
+			put(key, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns p raised to the power k, from the cache if it is there.
+	 *
+	 * @param p Polynomial
+	 * @param k Exponent, 0 or more
+	 * @return A new polynomial which is p to the power k.
+	 * @throws IllegalArgumentException If k is negative
+	 */
+	public Polynomial pow(Polynomial p, int k) {
+		return pow(ArrayPolynomial.from(p), k).toPolynomial();
+	}
+
+	/**
+	 * Returns p raised to the power k, from the cache if it is there.
+	 *
+	 * @param p Polynomial
+	 * @param k Exponent, 0 or more
+	 * @return p to the power k
+	 * @throws IllegalArgumentException If k is negative
+	 */
+	public ArrayPolynomial pow(ArrayPolynomial p, int k) {
+		if (k < 0) {
+			throw new IllegalArgumentException("Negative exponent " + k);
+		}
+		Key key = new Key(p, null, k);
+		ArrayPolynomial result = get(key);
+		if (result == null) {
+			result = p.pow(k);
+			put(key, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Looks up a result and counts the hit or miss.
+	 *
+	 * @param key Operation
+	 * @return Cached result, or null
+	 */
+	private ArrayPolynomial get(Key key) {
+		Entry e = entries.get(key);
+		if (e == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		synchronized (recency) {
+			// Only moves the entry to the end if it has not been evicted meanwhile.
+			recency.get(e);
+		}
+		hits.incrementAndGet();
+		return e.result;
+	}
+
+	/**
+	 * Keeps a result, evicting least recently used entries to make room.
+	 *
+	 * @param key Operation
+	 * @param result Result of the operation
+	 */
+	private void put(Key key, ArrayPolynomial result) {
+		Entry e = new Entry(key, result);
+		if (e.weight > maxTerms || entries.putIfAbsent(key, e) != null) {
+			return;
+		}
+		synchronized (recency) {
+			recency.put(e, Boolean.TRUE);
+			terms += e.weight;
+			Iterator<Entry> it = recency.keySet().iterator();
+			while (terms > maxTerms) {
+				Entry eldest = it.next();
+				it.remove();
+				terms -= eldest.weight;
+				// The key is the same object, so this finds it without comparing terms.
+				entries.remove(eldest.key, eldest);
+				evictions.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of lookups that found their result.
+	 *
+	 * @return Number of hits
+	 */
+	public long hits() {
+		return hits.get();
+	}
+
+	/**
+	 * Returns the number of lookups that did not find their result.
+	 *
+	 * @return Number of misses
+	 */
+	public long misses() {
+		return misses.get();
+	}
+
+	/**
+	 * Returns the number of entries evicted to stay under the size limit.
+	 *
+	 * @return Number of evictions
+	 */
+	public long evictions() {
+		return evictions.get();
+	}
+
+	/**
+	 * Returns the number of entries in the cache.
+	 *
+	 * @return Number of entries
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Returns the total number of terms kept, counting results and operands.
+	 *
+	 * @return Number of terms
+	 */
+	public long terms() {
+		synchronized (recency) {
+			return terms;
+		}
+	}
+
+	/**
+	 * Removes all entries. The counters are kept.
+	 */
+	public void clear() {
+		synchronized (recency) {
+			for (Entry e : recency.keySet()) {
+				entries.remove(e.key, e);
+			}
+			recency.clear();
+			terms = 0;
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		return "ProductCache[entries=" + size() + ", terms=" + terms() + "/" + maxTerms
+				+ ", hits=" + hits() + ", misses=" + misses() + ", evictions=" + evictions() + "]";
+	}
+
+	/**
+	 * Hashes the terms of a polynomial, the same way for either layout.
+	 *
+	 * @param p Polynomial
+	 * @return Hash of the nonzero terms
+	 */
+	static int contentHash(ArrayPolynomial p) {
+		int h = 1;
+		for (int i = 0; i < p.size; i++) {
+			if (p.coeffs[i] != 0) {
+				h = 31 * (31 * h + p.degreeAt(i)) + Float.floatToIntBits(p.coeffs[i]);
+			}
+		}
+		return h;
+	}
+
+	/**
+	 * Checks whether two polynomials have the same terms, in either layout.
+	 *
+	 * @param a First polynomial
+	 * @param b Second polynomial
+	 * @return True if their nonzero terms are the same
+	 */
+	static boolean sameTerms(ArrayPolynomial a, ArrayPolynomial b) {
+		if (a == b) {
+			return true;
+		}
+		if (a.terms() != b.terms()) {
+			return false;
+		}
+		return sameTermsScan(a, b);
+	}
+
+	/**
+	 * Compares the terms of two polynomials, in either layout, without counting them
+	 * first.
+	 *
+	 * @param a First polynomial
+	 * @param b Second polynomial
+	 * @return True if their nonzero terms are the same
+	 */
+	private static boolean sameTermsScan(ArrayPolynomial a, ArrayPolynomial b) {
+		if (a == b) {
+			return true;
+		}
+		int i = 0, j = 0;
+		while (true) {
+			while (i < a.size && a.coeffs[i] == 0) {
+				i++;
+			}
+			while (j < b.size && b.coeffs[j] == 0) {
+				j++;
+			}
+			if (i == a.size || j == b.size) {
+				return i == a.size && j == b.size;
+			}
+			if (a.degreeAt(i) != b.degreeAt(j)
+					|| Float.floatToIntBits(a.coeffs[i]) != Float.floatToIntBits(b.coeffs[j])) {
+				return false;
+			}
+			i++;
+			j++;
+		}
+	}
+
+	/**
+	 * Operation whose result is cached: a product of a and b, or a raised to the power k.
+	 */
+	private static final class Key {
+
+		final ArrayPolynomial a, b;
+
+		final int k;
+
+		/**
+		 * Hash of the operation, and numbers of terms of a and b (0 if b is null).
+		 */
+		final int hash, aTerms, bTerms;
+
+		Key(ArrayPolynomial a, ArrayPolynomial b, int k) {
+			this.a = a;
+			this.b = b;
+			this.k = k;
+			this.aTerms = a.terms();
+			this.bTerms = b == null ? 0 : b.terms();
+
+			// Adding the operand hashes makes a*b and b*a hash the same.
+			this.hash = b == null ? 31 * contentHash(a) + k : contentHash(a) + contentHash(b);
+		}
+
+		long weight() {
+			return (long)aTerms + bTerms;
+		}
+
+		public int hashCode() {
+			return hash;
+		}
+
+		public boolean equals(Object other) {
+			if (other == this) {
+				return true;
+			}
+			if (!(other instanceof Key)) {
+				return false;
+			}
+			Key o = (Key)other;
+			if (hash != o.hash || k != o.k || (b == null) != (o.b == null)) {
+				return false;
+			}
+			if (b == null) {
+				return aTerms == o.aTerms && sameTermsScan(a, o.a);
+			}
+			return (aTerms == o.aTerms && bTerms == o.bTerms && sameTermsScan(a, o.a) && sameTermsScan(b, o.b))
+					|| (aTerms == o.bTerms && bTerms == o.aTerms && sameTermsScan(a, o.b) && sameTermsScan(b, o.a));
+		}
+	}
+
+	/**
+	 * Cached result, with the number of terms it counts against the limit.
+	 */
+	private static final class Entry {
+
+		final Key key;
+
+		final ArrayPolynomial result;
+
+		final long weight;
+
+		Entry(Key key, ArrayPolynomial result) {
+			this.key = key;
+			this.result = result;
+			this.weight = key.weight() + result.terms();
+		}
+	}
+}
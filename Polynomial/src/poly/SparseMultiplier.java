@@ -0,0 +1,152 @@
+package poly;
+
+/**
+ * This class multiplies sparse polynomials with Johnson's heap method. The product
+ * of a with b is seen as one row of partial products per term of a, each row already
+ * in ascending order of degree. A min-heap holds one cursor per active row, keyed on
+ * the degree of the partial product it points to, so products come out in degree
+ * order and terms of equal degree are combined as soon as they are produced.
+ * <p>
+ * Apart from the result, working memory is the heap of at most n cursors (n being the
+ * number of terms of the smaller operand) instead of all n*m partial products.
+ *
+ * @author runb-cs112
+ *
+ */
+class SparseMultiplier {
+
+	/**
+	 * Multiplies two sparse polynomials.
+	 *
+	 * @param a First sparse polynomial
+	 * @param b Second sparse polynomial
+	 * @return Sparse product of a and b
+	 */
+	static ArrayPolynomial multiply(ArrayPolynomial a, ArrayPolynomial b) {
+		// Use the operand with fewer terms for the rows so the heap stays small.
+		if (a.size > b.size) {
+			ArrayPolynomial t = a; a = b; b = t;
+		}
+		int n = a.size, m = b.size;
+		if (n == 0) {
+			return new ArrayPolynomial();
+		}
+
+		// Heap of row cursors: row i of a, column col[i] of b, keyed on the degree of the product.
+		int[] heapRow = new int[n];
+		int[] heapKey = new int[n];
+		int[] col = new int[n];
+		int heapSize = 0;
+
+		// Output grows as needed, starting from a guess of n+m terms.
+		int cap = Math.max(16, n + m);
+		int[] d = new int[cap];
+		float[] c = new float[cap];
+		int k = 0;
+
+		// Rows only enter the heap once the row above has reached its first column, since
+		// until then they cannot hold the smallest degree.
+		heapSize = push(heapRow, heapKey, heapSize, 0, a.degrees[0] + b.degrees[0]);
+
+		while (heapSize > 0) {
+			int i = heapRow[0];
+			int degree = heapKey[0];
+			float coeff = a.coeffs[i] * b.coeffs[col[i]];
+
+			// Combine with the last output term if it has the same degree.
+			if (k > 0 && d[k-1] == degree) {
+				c[k-1] += coeff;
+			} else {
+				if (k > 0 && c[k-1] == 0) {
+					k--;
+				}
+				if (k == cap) {
+					cap = cap << 1;
+					d = java.util.Arrays.copyOf(d, cap);
+					c = java.util.Arrays.copyOf(c, cap);
+				}
+				d[k] = degree;
+				c[k] = coeff;
+				k++;
+			}
+
+			if (col[i] == 0 && i+1 < n) {
+				heapSize = push(heapRow, heapKey, heapSize, i+1, a.degrees[i+1] + b.degrees[0]);
+			}
+
+			// Advance this row, or drop it from the heap if it is done.
+			if (++col[i] < m) {
+				heapKey[0] = a.degrees[i] + b.degrees[col[i]];
+			} else {
+				heapSize--;
+				heapRow[0] = heapRow[heapSize];
+				heapKey[0] = heapKey[heapSize];
+			}
+			siftDown(heapRow, heapKey, heapSize, 0);
+		}
+		if (k > 0 && c[k-1] == 0) {
+			k--;
+		}
+
+		return new ArrayPolynomial(d, c, k);
+	}
+
+	/**
+	 * Adds a cursor to the heap.
+	 *
+	 * @param heapRow Rows of the cursors in the heap
+	 * @param heapKey Degrees of the cursors in the heap
+	 * @param heapSize Number of cursors in the heap
+	 * @param row Row of the new cursor
+	 * @param key Degree of the new cursor
+	 * @return New number of cursors in the heap
+	 */
+	private static int push(int[] heapRow, int[] heapKey, int heapSize, int row, int key) {
+		int pos = heapSize;
+		while (pos > 0) {
+			int parent = (pos-1) >>> 1;
+			if (heapKey[parent] <= key) {
+				break;
+			}
+			heapRow[pos] = heapRow[parent];
+			heapKey[pos] = heapKey[parent];
+			pos = parent;
+		}
+		heapRow[pos] = row;
+		heapKey[pos] = key;
+		return heapSize + 1;
+	}
+
+	/**
+	 * Moves the cursor at the given position down to its place in the heap.
+	 *
+	 * @param heapRow Rows of the cursors in the heap
+	 * @param heapKey Degrees of the cursors in the heap
+	 * @param heapSize Number of cursors in the heap
+	 * @param pos Position of the cursor to be moved
+	 */
+	private static void siftDown(int[] heapRow, int[] heapKey, int heapSize, int pos) {
+		if (pos >= heapSize) {
+			return;
+		}
+		int row = heapRow[pos];
+		int key = heapKey[pos];
+		while (true) {
+			int child = 2*pos + 1;
+			if (child >= heapSize) {
+				break;
+			}
+			if (child+1 < heapSize && heapKey[child+1] < heapKey[child]) {
+				child++;
+			}
+			if (key <= heapKey[child]) {
+				break;
+			}
+			heapRow[pos] = heapRow[child];
+			heapKey[pos] = heapKey[child];
+			pos = child;
+		}
+		heapRow[pos] = row;
+		heapKey[pos] = key;
+	}
+}
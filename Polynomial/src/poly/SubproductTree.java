@@ -0,0 +1,431 @@
+package poly;
+
+/**
+ * This class evaluates polynomials at many points at once, and interpolates
+ * polynomials through many points, with a subproduct tree. The leaves of the tree are
+ * the polynomials (x - x_i), one per point, and every other node is the product of
+ * its two children, so the root is the product of all of them.
+ * <ul>
+ *     <li><b>Evaluation</b> divides the polynomial by the root and then each remainder
+ *     by the two children of its node, all the way down. The remainder at the leaf
+ *     (x - x_i) is the value at x_i.</li>
+ *     <li><b>Interpolation</b> (Lagrange) evaluates the derivative of the root at all
+ *     points to get the weight of each point, then combines weights up the tree as
+ *     left*M_right + right*M_left.</li>
+ * </ul>
+ * Each level of the tree costs a few multiplications of total degree n, so with exact
+ * arithmetic both would run in O(n log^2 n) instead of O(n^2).
+ * <p>
+ * With real points in floating point, though, this is only a helper for small point
+ * sets. Dividing by the products of the tree is much less stable than Horner's
+ * scheme: the error is near 1e-9 with 64 points spread over [-1, 1], but grows
+ * without bound soon after, and splitting the points into small trees does not help
+ * because reducing a long polynomial modulo even one product of 64 factors already
+ * loses all accuracy. So the tree is only built for at most {@link #MAX_TREE_POINTS}
+ * points. Evaluation at more points uses Horner's scheme at each point, in O(n*d) for
+ * a polynomial of degree d, and evaluation down the tree checks a few of its values
+ * against Horner's scheme and falls back to it if one is off. Arithmetic is done in
+ * double precision, and the points are dealt out to the leaves so that every subtree
+ * covers the whole range of points, which keeps the coefficients of the products
+ * small.
+ * <p>
+ * Interpolation is further limited by the problem itself: recovering monomial
+ * coefficients from samples at real points is badly conditioned, and the
+ * coefficients soon get too large for float to hold them accurately (beyond about a
+ * dozen evenly spaced points in [-1, 1]). So interpolation is only done with a tree, and
+ * the result is checked against the samples; if it does not reproduce them to within
+ * {@link #INTERPOLATION_TOLERANCE}, an exception is thrown instead of returning it.
+ *
+ * @author runb-cs112
+ *
+ */
+public class SubproductTree {
+
+	/**
+	 * Nodes covering at most this many points evaluate their remainder with Horner's
+	 * scheme instead of dividing further.
+	 */
+	static final int LEAF_POINTS = 8;
+
+	/**
+	 * Largest number of points for which the tree is built. Beyond this the remainders
+	 * lose all accuracy in double precision.
+	 */
+	static final int MAX_TREE_POINTS = 64;
+
+	/**
+	 * Largest error allowed in an interpolated value at one of the points, relative to
+	 * the largest absolute sample value.
+	 */
+	static final double INTERPOLATION_TOLERANCE = 1e-3;
+
+	/**
+	 * Number of values from the tree that are checked against Horner's scheme.
+	 */
+	static final int CHECKED_POINTS = 4;
+
+	/**
+	 * Largest error allowed in a checked value, relative to the sum of the absolute
+	 * values of the terms at that point.
+	 */
+	static final double CHECK_TOLERANCE = 1e-7;
+
+	/**
+	 * Points the tree was built for, in the order of the leaves.
+	 */
+	private final double[] xs;
+
+	/**
+	 * Index in the caller's array of the point at each leaf.
+	 */
+	private final int[] order;
+
+	/**
+	 * False if two of the points are equal.
+	 */
+	private final boolean distinct;
+
+	/**
+	 * Levels of the tree, leaves first. Node j of level k is the product of
+	 * (x - x_i) for i in j*2^k .. (j+1)*2^k - 1, as dense coefficients. Null if there
+	 * are more than {@link #MAX_TREE_POINTS} points.
+	 */
+	private final double[][][] levels;
+
+	/**
+	 * Builds the subproduct tree for the given points. With more than
+	 * {@link #MAX_TREE_POINTS} points no tree is built, and only evaluation is
+	 * possible.
+	 *
+	 * @param xs Points, at least one
+	 * @throws IllegalArgumentException If there are no points
+	 */
+	public SubproductTree(float[] xs) {
+		if (xs.length == 0) {
+			throw new IllegalArgumentException("No points given");
+		}
+		this.xs = new double[xs.length];
+		if (xs.length > MAX_TREE_POINTS) {
+			order = new int[xs.length];
+			for (int i = 0; i < xs.length; i++) {
+				order[i] = i;
+				this.xs[i] = xs[i];
+			}
+			distinct = false;
+			levels = null;
+			return;
+		}
+
+		// Sorted points are dealt out so that every subtree gets points spread over the
+		// whole range instead of a cluster of neighbours, which keeps the products in the
+		// tree from having huge coefficients.
+		Integer[] sorted = new Integer[xs.length];
+		for (int i = 0; i < xs.length; i++) {
+			sorted[i] = i;
+		}
+		java.util.Arrays.sort(sorted, (i, j) -> Float.compare(xs[i], xs[j]));
+		order = new int[xs.length];
+		for (int i = 0; i < xs.length; i++) {
+			order[i] = sorted[i];
+		}
+		boolean distinct = true;
+		for (int i = 1; i < xs.length; i++) {
+			if (xs[order[i]] == xs[order[i-1]]) {
+				distinct = false;
+			}
+		}
+		this.distinct = distinct;
+		spread(order, 0, xs.length, new int[xs.length]);
+
+		int height = 1;
+		while ((1 << (height-1)) < xs.length) {
+			height++;
+		}
+		levels = new double[height][][];
+
+		levels[0] = new double[xs.length][];
+		for (int i = 0; i < xs.length; i++) {
+			this.xs[i] = xs[order[i]];
+			levels[0][i] = new double[] { -this.xs[i], 1 };
+		}
+
+		for (int k = 1; k < height; k++) {
+			double[][] below = levels[k-1];
+			levels[k] = new double[(below.length + 1) / 2][];
+			for (int j = 0; j < levels[k].length; j++) {
+				if (2*j + 1 < below.length) {
+					double[] l = below[2*j], r = below[2*j + 1];
+					levels[k][j] = DenseMultiplier.multiply(l, l.length, r, r.length);
+				} else {
+					// An odd node out moves up unchanged.
+					levels[k][j] = below[2*j];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reorders a[lo..hi-1] so that the block that will form the left subtree takes
+	 * evenly spaced elements and the right subtree the rest, then does the same within
+	 * each block.
+	 *
+	 * @param a Array to reorder
+	 * @param lo First index of the range
+	 * @param hi One past the last index of the range
+	 * @param tmp Scratch array as long as a
+	 */
+	private static void spread(int[] a, int lo, int hi, int[] tmp) {
+		int count = hi - lo;
+		if (count <= 2) {
+			return;
+		}
+		int left = Integer.highestOneBit(count - 1);
+
+		int l = lo, r = lo + left, next = 0;
+		for (int i = 0; i < count; i++) {
+			// Element i goes left if it is the next of the left block's evenly spaced picks.
+			if (next < left && i == (int)((long)next * count / left)) {
+				tmp[l++] = a[lo+i];
+				next++;
+			} else {
+				tmp[r++] = a[lo+i];
+			}
+		}
+		System.arraycopy(tmp, lo, a, lo, count);
+		spread(a, lo, lo + left, tmp);
+		spread(a, lo + left, hi, tmp);
+	}
+
+	/**
+	 * Returns the number of points the tree was built for.
+	 *
+	 * @return Number of points
+	 */
+	public int points() {
+		return xs.length;
+	}
+
+	/**
+	 * Evaluates the given polynomial at all the points of this tree.
+	 *
+	 * @param p Polynomial to be evaluated
+	 * @return Value of p at the i-th point, at index i
+	 */
+	public float[] evaluate(Polynomial p) {
+		return evaluate(ArrayPolynomial.from(p));
+	}
+
+	/**
+	 * Evaluates the given polynomial at all the points of this tree.
+	 *
+	 * @param p Polynomial to be evaluated
+	 * @return Value of p at the i-th point, at index i
+	 */
+	public float[] evaluate(ArrayPolynomial p) {
+		double[] values = evaluate(p.toDoubles());
+		float[] out = new float[values.length];
+		for (int i = 0; i < values.length; i++) {
+			out[i] = (float)values[i];
+		}
+		return out;
+	}
+
+	/**
+	 * Evaluates the given dense polynomial at all the points of this tree.
+	 *
+	 * @param p Coefficients of the polynomial
+	 * @return Value of p at the i-th point, at index i
+	 */
+	double[] evaluate(double[] p) {
+		double[] values = new double[xs.length];
+		if (levels == null || !divide(p, values) || !check(p, values)) {
+			for (int i = 0; i < xs.length; i++) {
+				values[order[i]] = horner(p, p.length, xs[i]);
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Evaluates a dense polynomial at all the points by dividing down the tree.
+	 *
+	 * @param p Coefficients of the polynomial
+	 * @param values Array to hold the value at the i-th point at index i
+	 * @return False if a value is not finite
+	 */
+	private boolean divide(double[] p, double[] values) {
+		// Go down until the nodes cover few enough points to finish with Horner.
+		int stop = 0;
+		while ((1 << stop) < LEAF_POINTS && stop < levels.length-1) {
+			stop++;
+		}
+
+		int top = levels.length-1;
+		double[][] rem = { DenseDivision.remainder(p, levels[top][0]) };
+		for (int k = top-1; k >= stop; k--) {
+			double[][] next = new double[levels[k].length][];
+			for (int j = 0; j < next.length; j++) {
+				next[j] = DenseDivision.remainder(rem[j/2], levels[k][j]);
+			}
+			rem = next;
+		}
+
+		for (int j = 0; j < rem.length; j++) {
+			int lo = j << stop, hi = Math.min((j+1) << stop, xs.length);
+			for (int i = lo; i < hi; i++) {
+				double v = horner(rem[j], rem[j].length, xs[i]);
+				if (!Double.isFinite(v)) {
+					return false;
+				}
+				values[order[i]] = v;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Checks values from the tree at a few points spread over the leaves against
+	 * Horner's scheme.
+	 *
+	 * @param p Coefficients of the polynomial
+	 * @param values Value at the i-th point at index i, from the tree
+	 * @return True if every checked value is within {@link #CHECK_TOLERANCE}
+	 */
+	private boolean check(double[] p, double[] values) {
+		int checks = Math.min(CHECKED_POINTS, xs.length);
+		for (int k = 0; k < checks; k++) {
+			int i = (int)((long)k * xs.length / checks);
+			double x = xs[i], v = 0, scale = 0;
+			for (int c = p.length-1; c >= 0; c--) {
+				v = v * x + p[c];
+				scale = scale * Math.abs(x) + Math.abs(p[c]);
+			}
+			if (!(Math.abs(values[order[i]] - v) <= CHECK_TOLERANCE * scale)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Evaluates a dense polynomial at x with Horner's scheme.
+	 *
+	 * @param p Coefficients
+	 * @param n Number of coefficients
+	 * @param x Point
+	 * @return Value at x
+	 */
+	private static double horner(double[] p, int n, double x) {
+		double v = 0;
+		for (int c = n-1; c >= 0; c--) {
+			v = v * x + p[c];
+		}
+		return v;
+	}
+
+	/**
+	 * Builds the polynomial of lowest degree that takes the given values at the points
+	 * of this tree.
+	 *
+	 * @param ys Value at the i-th point, at index i
+	 * @return Interpolating polynomial, of degree less than the number of points
+	 * @throws IllegalArgumentException If the number of values does not match the number
+	 *         of points, there are more than {@link #MAX_TREE_POINTS} points, two points
+	 *         are equal, or the polynomial cannot be held accurately in float
+	 *         coefficients
+	 */
+	public Polynomial interpolate(float[] ys) {
+		if (ys.length != xs.length) {
+			throw new IllegalArgumentException(ys.length + " values for " + xs.length + " points");
+		}
+		if (levels == null) {
+			throw new IllegalArgumentException("Cannot interpolate through more than " + MAX_TREE_POINTS + " points");
+		}
+		if (!distinct) {
+			throw new IllegalArgumentException("Points must all be different");
+		}
+
+		// Weight of point i is y_i / M'(x_i), where M is the product at the root.
+		double[] root = levels[levels.length-1][0];
+		double[] derivative = new double[root.length-1];
+		for (int i = 1; i < root.length; i++) {
+			derivative[i-1] = i * root[i];
+		}
+		double[] d = evaluate(derivative);
+
+		double[][] sums = new double[xs.length][];
+		for (int i = 0; i < xs.length; i++) {
+			sums[i] = new double[] { ys[order[i]] / d[order[i]] };
+		}
+
+		// Combine up the tree: left*M_right + right*M_left.
+		for (int k = 1; k < levels.length; k++) {
+			double[][] below = levels[k-1];
+			double[][] next = new double[levels[k].length][];
+			for (int j = 0; j < next.length; j++) {
+				if (2*j + 1 < below.length) {
+					double[] ml = below[2*j], mr = below[2*j + 1];
+					double[] sl = sums[2*j], sr = sums[2*j + 1];
+					double[] a = DenseMultiplier.multiply(sl, sl.length, mr, mr.length);
+					double[] b = DenseMultiplier.multiply(sr, sr.length, ml, ml.length);
+					double[] s = new double[Math.max(a.length, b.length)];
+					for (int i = 0; i < a.length; i++) {
+						s[i] = a[i];
+					}
+					for (int i = 0; i < b.length; i++) {
+						s[i] += b[i];
+					}
+					next[j] = s;
+				} else {
+					next[j] = sums[2*j];
+				}
+			}
+			sums = next;
+		}
+
+		double[] c = sums[0];
+		ArrayPolynomial p = ArrayPolynomial.dense(c, c.length);
+		check(p, ys);
+		return p.toPolynomial();
+	}
+
+	/**
+	 * Checks that an interpolated polynomial, with its coefficients rounded to float,
+	 * takes the sample values at the points.
+	 *
+	 * @param p Interpolated polynomial
+	 * @param ys Value at the i-th point, at index i
+	 * @throws IllegalArgumentException If a value is off by more than
+	 *         {@link #INTERPOLATION_TOLERANCE} times the largest sample
+	 */
+	private void check(ArrayPolynomial p, float[] ys) {
+		double[] c = p.toDoubles();
+		double largest = 0;
+		for (float y : ys) {
+			largest = Math.max(largest, Math.abs(y));
+		}
+		for (int i = 0; i < xs.length; i++) {
+			double y = ys[order[i]];
+			if (!(Math.abs(horner(c, c.length, xs[i]) - y) <= INTERPOLATION_TOLERANCE * largest)) {
+				throw new IllegalArgumentException("Interpolating polynomial through " + xs.length
+						+ " points is too ill-conditioned for float coefficients");
+			}
+		}
+	}
+
+	/**
+	 * Builds the polynomial of lowest degree that takes the given values at the given
+	 * points.
+	 *
+	 * @param xs Points, all different
+	 * @param ys Value at the i-th point, at index i
+	 * @return Interpolating polynomial, of degree less than the number of points
+	 * @throws IllegalArgumentException If there are no points, the number of values does
+	 *         not match the number of points, there are more than
+	 *         {@link #MAX_TREE_POINTS} points, two points are equal, or the polynomial
+	 *         cannot be held accurately in float coefficients
+	 */
+	public static Polynomial interpolate(float[] xs, float[] ys) {
+		return new SubproductTree(xs).interpolate(ys);
+	}
+}
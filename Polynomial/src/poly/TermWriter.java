@@ -0,0 +1,110 @@
+package poly;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * This class writes the terms of a polynomial as text, highest degree first, in the
+ * format of {@link Term#toString()} joined with " + ", and "0" if there are no terms.
+ * <p>
+ * Terms are formatted into one reusable buffer, with the float going through
+ * {@link StringBuilder#append(float)} so no string is made per term, and the buffer is
+ * handed to the destination in large chunks. A {@link StringBuilder} destination is
+ * written to directly.
+ *
+ * @author runb-cs112
+ *
+ */
+class TermWriter {
+
+	/**
+	 * Number of characters collected before they are passed on.
+	 */
+	static final int CHUNK = 1 << 13;
+
+	/**
+	 * Destination.
+	 */
+	private final Appendable out;
+
+	/**
+	 * Buffer for the next chunk, or the destination itself if it is a StringBuilder.
+	 */
+	private final StringBuilder buf;
+
+	/**
+	 * Characters of a chunk, for writers.
+	 */
+	private char[] chars;
+
+	/**
+	 * True until the first term is written.
+	 */
+	private boolean first = true;
+
+	/**
+	 * Initializes a writer for the given destination.
+	 *
+	 * @param out Destination
+	 */
+	TermWriter(Appendable out) {
+		this.out = out;
+		this.buf = out instanceof StringBuilder ? (StringBuilder)out : new StringBuilder(CHUNK + 64);
+	}
+
+	/**
+	 * Writes the next term.
+	 *
+	 * @param coeff Coefficient
+	 * @param degree Degree
+	 * @throws IOException If the destination cannot be written
+	 */
+	void term(float coeff, int degree) throws IOException {
+		if (!first) {
+			buf.append(" + ");
+		}
+		first = false;
+		buf.append(coeff);
+		if (degree == 1) {
+			buf.append('x');
+		} else if (degree != 0) {
+			buf.append("x^").append(degree);
+		}
+		if (buf != out && buf.length() >= CHUNK) {
+			flush();
+		}
+	}
+
+	/**
+	 * Writes "0" if there were no terms, and passes on whatever is left in the buffer.
+	 *
+	 * @throws IOException If the destination cannot be written
+	 */
+	void finish() throws IOException {
+		if (first) {
+			buf.append('0');
+		}
+		if (buf != out) {
+			flush();
+		}
+	}
+
+	/**
+	 * Passes the buffer on to the destination and empties it.
+	 *
+	 * @throws IOException If the destination cannot be written
+	 */
+	private void flush() throws IOException {
+		int n = buf.length();
+		if (out instanceof Writer) {
+			if (chars == null || chars.length < n) {
+				chars = new char[Math.max(n, CHUNK + 64)];
+			}
+			buf.getChars(0, n, chars, 0);
+			((Writer)out).write(chars, 0, n);
+		} else {
+			out.append(buf, 0, n);
+		}
+		buf.setLength(0);
+	}
+}